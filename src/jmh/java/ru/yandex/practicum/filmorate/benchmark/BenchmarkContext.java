@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Запуск контекста приложения для бенчмарков: без веб-сервера, на отдельной in-memory базе H2,
+ * схема и справочники создаются schema.sql и data.sql
+ */
+public final class BenchmarkContext {
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param properties дополнительные настройки приложения в виде "имя=значение"
+     * @return запущенный контекст, закрывается вызывающим кодом
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"
+                , "spring.datasource.driverClassName=org.h2.Driver"
+                , "spring.datasource.username=sa"
+                , "spring.datasource.password="
+                , "spring.sql.init.mode=always"
+                , "spring.jpa.hibernate.ddl-auto=none"
+                , "logging.level.root=WARN"));
+        all.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(all.toArray(new String[0]))
+                .run();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.Genre;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и декодирование списка фильмов в JSON, Smile и CBOR
+ * с настройками сериализации, как в BinaryFormatsConfig
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final TypeReference<List<Film>> FILM_LIST = new TypeReference<>() {
+    };
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"100"})
+    private int films;
+
+    private ObjectMapper mapper;
+    private List<Film> filmList;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JsonFactory factory;
+        switch (format) {
+            case "smile":
+                factory = new SmileFactory();
+                break;
+            case "cbor":
+                factory = new CBORFactory();
+                break;
+            default:
+                factory = new JsonFactory();
+        }
+        mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .factory(factory)
+                .build();
+
+        filmList = new ArrayList<>();
+        for (int i = 1; i <= films; i++) {
+            filmList.add(new Film(i, "Фильм " + i, "Описание фильма " + i, LocalDate.of(2000, 1, 1).plusDays(i)
+                    , 90, new MpaRating(1, "G"), List.of(new Genre(1, "Комедия"), new Genre(2, "Драма"))));
+        }
+        encoded = mapper.writeValueAsBytes(filmList);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(filmList);
+    }
+
+    @Benchmark
+    public List<Film> decode() throws IOException {
+        return mapper.readValue(encoded, FILM_LIST);
+    }
+}
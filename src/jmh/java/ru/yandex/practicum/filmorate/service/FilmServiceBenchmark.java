@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.dataset.DatasetGenerator;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции FilmService через кэширующее хранилище, с кэшем и без него
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark {
+    @Param({"10000"})
+    private int films;
+
+    @Param({"1000"})
+    private int users;
+
+    @Param({"true", "false"})
+    private boolean cache;
+
+    private ConfigurableApplicationContext context;
+    private FilmService filmService;
+    private int likingUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("filmorate.cache.enabled=" + cache);
+        context.getBean(DatasetGenerator.class).generate(new DatasetSpec(users, films, 10, 20, 1.0, 42));
+        filmService = context.getBean(FilmService.class);
+        likingUserId = context.getBean(UserService.class)
+                .create(new User("bench@mail.ru", "bench", "bench", LocalDate.of(2000, 1, 1))).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmService.getById(randomFilmId());
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmService.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public int likeAndDislike() throws FilmNotFoundException, UserNotFoundException {
+        int filmId = randomFilmId();
+        filmService.likeFilmById(filmId, likingUserId);
+        filmService.dislikeFilmById(filmId, likingUserId);
+        return filmId;
+    }
+
+    private int randomFilmId() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск цепочки друзей (двунаправленный BFS) и расчет PageRank на графе со степенным распределением связей
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendGraphBenchmark {
+    @Param({"10000", "100000"})
+    private int users;
+
+    @Param({"10"})
+    private int edgesPerUser;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private FriendGraph graph;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = DatasetGenerator.generateFriendGraph(users, edgesPerUser, 42);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public List<Integer> findPath() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return FriendGraphService.findPath(graph, 1 + random.nextInt(users), 1 + random.nextInt(users)
+                , 6, 100000);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double[] pageRank() {
+        return InfluenceService.computePageRank(graph, 0.85, 1e-6, 100, pool).scores;
+    }
+}
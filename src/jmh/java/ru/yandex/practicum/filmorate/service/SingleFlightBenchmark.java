@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.storage.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузка "thundering herd": все потоки запрашивают один и тот же список популярных фильмов.
+ * Счетчик loads показывает количество обращений к базе, с single-flight их меньше количества операций
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class SingleFlightBenchmark {
+    @Param({"true", "false"})
+    private boolean singleFlight;
+
+    private ConfigurableApplicationContext context;
+    private FilmDbStorage filmStorage;
+    private final SingleFlight<Integer, List<Film>> flight = new SingleFlight<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.getBean(DatasetGenerator.class).generate(new DatasetSpec(1000, 10000, 10, 20, 1.0, 42));
+        filmStorage = context.getBean(FilmDbStorage.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * количество обращений к базе, выполненных потоком
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Loads {
+        public long loads;
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms(Loads counter) {
+        if (!singleFlight) {
+            counter.loads++;
+            return filmStorage.getPopularFilms(10);
+        }
+        return flight.execute(10, () -> {
+            counter.loads++;
+            return filmStorage.getPopularFilms(10);
+        });
+    }
+}
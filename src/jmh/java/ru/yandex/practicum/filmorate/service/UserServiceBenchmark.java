@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.dataset.DatasetGenerator;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции UserService через кэширующее хранилище, с кэшем и без него
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    @Param({"10000"})
+    private int users;
+
+    @Param({"50"})
+    private int friendsPerUser;
+
+    @Param({"true", "false"})
+    private boolean cache;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("filmorate.cache.enabled=" + cache);
+        context.getBean(DatasetGenerator.class).generate(new DatasetSpec(users, 100, friendsPerUser, 0, 1.0, 42));
+        userService = context.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User getById() {
+        return userService.getById(randomUserId());
+    }
+
+    @Benchmark
+    public List<User> getUserFriends() throws UserNotFoundException {
+        return userService.getUserFriends(randomUserId());
+    }
+
+    @Benchmark
+    public List<User> getMutualFriends() throws UserNotFoundException {
+        return userService.getMutualFriendsById(randomUserId(), randomUserId());
+    }
+
+    private int randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
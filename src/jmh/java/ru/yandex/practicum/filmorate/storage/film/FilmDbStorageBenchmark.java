@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции FilmDbStorage без кэша при разных способах загрузки жанров и лайков:
+ * single - одним запросом (ARRAY_AGG), multi - отдельными запросами,
+ * multi-parallel - отдельными запросами на разных соединениях одновременно
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmDbStorageBenchmark {
+    @Param({"1000", "10000"})
+    private int films;
+
+    @Param({"1000"})
+    private int users;
+
+    @Param({"20"})
+    private int likesPerUser;
+
+    @Param({"single", "multi", "multi-parallel"})
+    private String hydration;
+
+    private ConfigurableApplicationContext context;
+    private FilmDbStorage filmStorage;
+    private List<Film> allFilms;
+    private int likingUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "filmorate.storage.film.single-query-hydration=" + hydration.equals("single")
+                , "filmorate.storage.film.parallel-child-loads=" + hydration.equals("multi-parallel"));
+        context.getBean(DatasetGenerator.class).generate(new DatasetSpec(users, films, 10, likesPerUser, 1.0, 42));
+        filmStorage = context.getBean(FilmDbStorage.class);
+        allFilms = filmStorage.getAll();
+        // пользователь без лайков, чтобы добавление лайка не нарушало уникальность
+        likingUserId = context.getBean(UserDbStorage.class)
+                .create(new User("bench@mail.ru", "bench", "bench", LocalDate.of(2000, 1, 1))).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmStorage.getById(randomFilmId());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmStorage.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public Film addAndRemoveLike() {
+        Film film = randomFilm();
+        filmStorage.addLike(film, likingUserId);
+        filmStorage.removeLike(film, likingUserId);
+        return film;
+    }
+
+    @Benchmark
+    public Film update() {
+        return filmStorage.update(randomFilm());
+    }
+
+    private int randomFilmId() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+
+    private Film randomFilm() {
+        return allFilms.get(ThreadLocalRandom.current().nextInt(allFilms.size()));
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.Genre;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции InMemoryFilmStorage - нижняя граница для сравнения с FilmDbStorage
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryFilmStorageBenchmark {
+    @Param({"1000", "10000"})
+    private int films;
+
+    @Param({"1000"})
+    private int users;
+
+    @Param({"20"})
+    private int likesPerUser;
+
+    private InMemoryFilmStorage filmStorage;
+    private List<Film> allFilms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 1; i <= films; i++) {
+            filmStorage.create(new Film("Фильм " + i, "Описание фильма " + i, LocalDate.of(2000, 1, 1), 90
+                    , new MpaRating(1 + random.nextInt(5)), List.of(new Genre(1 + random.nextInt(6)))));
+        }
+        allFilms = filmStorage.getAll();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                filmStorage.addLike(allFilms.get(random.nextInt(allFilms.size())), userId);
+            }
+        }
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmStorage.getById(randomFilm().getId());
+    }
+
+    @Benchmark
+    public List<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmStorage.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public Film addAndRemoveLike() {
+        Film film = randomFilm();
+        filmStorage.addLike(film, users + 1);
+        filmStorage.removeLike(film, users + 1);
+        return film;
+    }
+
+    @Benchmark
+    public Film update() {
+        return filmStorage.update(randomFilm());
+    }
+
+    private Film randomFilm() {
+        return allFilms.get(ThreadLocalRandom.current().nextInt(allFilms.size()));
+    }
+}
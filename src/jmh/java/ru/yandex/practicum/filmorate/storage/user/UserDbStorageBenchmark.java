@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.benchmark.BenchmarkContext;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.dataset.DatasetGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции UserDbStorage без кэша: пакетная загрузка по списку id и загрузка друзей
+ * (getAll и getFriends заполняют списки друзей загруженных пользователей)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDbStorageBenchmark {
+    @Param({"10000"})
+    private int users;
+
+    @Param({"10", "100"})
+    private int friendsPerUser;
+
+    @Param({"100"})
+    private int idListSize;
+
+    private ConfigurableApplicationContext context;
+    private UserDbStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.getBean(DatasetGenerator.class).generate(new DatasetSpec(users, 100, friendsPerUser, 0, 1.0, 42));
+        userStorage = context.getBean(UserDbStorage.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User getById() {
+        return userStorage.getById(randomUserId());
+    }
+
+    @Benchmark
+    public List<User> getByIdList() {
+        List<Integer> idList = new ArrayList<>(idListSize);
+        for (int i = 0; i < idListSize; i++) {
+            idList.add(randomUserId());
+        }
+        return userStorage.getByIdList(idList);
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userStorage.getFriends(randomUserId());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return userStorage.getCommonFriends(randomUserId(), randomUserId());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<User> getAll() {
+        return userStorage.getAll();
+    }
+
+    private int randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.models.ErrorResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Доступ к эндпоинтам /admin/** только с токеном filmorate.admin.token в заголовке X-Admin-Token.
+ * Если токен не задан, эндпоинты /admin недоступны: они запускают запись JFR и полную сборку мусора
+ * и отдают тексты SQL-запросов с параметрами
+ */
+@Component
+@Slf4j
+public class AdminAccessFilter extends OncePerRequestFilter {
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+    private static final String ADMIN_PATH = "/admin";
+
+    private final byte[] token;
+    private final ObjectMapper objectMapper;
+
+    public AdminAccessFilter(@Value("${filmorate.admin.token:}") String token, ObjectMapper objectMapper) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.equals(ADMIN_PATH) && !path.startsWith(ADMIN_PATH + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(TOKEN_HEADER);
+        // сравнение за постоянное время, чтобы токен нельзя было подобрать по времени ответа
+        if (token.length > 0 && header != null
+                && MessageDigest.isEqual(token, header.getBytes(StandardCharsets.UTF_8))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        log.info("Отказано в доступе к {} {}", request.getMethod(), request.getRequestURI());
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream()
+                , new ErrorResponse("forbidden", "Нет доступа к административным эндпоинтам"));
+    }
+}
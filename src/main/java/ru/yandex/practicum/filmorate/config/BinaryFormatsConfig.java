@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Конвертеры для компактных бинарных форматов ответа и тела запроса.
+ * Клиент выбирает формат заголовками Accept / Content-Type:
+ * application/x-jackson-smile или application/cbor, по умолчанию используется JSON.
+ * Конвертеры строятся тем же Jackson2ObjectMapperBuilder, что и JSON, поэтому
+ * настройки сериализации (даты, неизвестные поля) совпадают во всех форматах
+ */
+@Configuration
+public class BinaryFormatsConfig {
+    /**
+     * конвертер для формата Smile
+     *
+     * @param builder настроенный Spring Boot построитель ObjectMapper
+     * @return конвертер
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * конвертер для формата CBOR
+     *
+     * @param builder настроенный Spring Boot построитель ObjectMapper
+     * @return конвертер
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
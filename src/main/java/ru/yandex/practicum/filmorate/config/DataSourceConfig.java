@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.jdbc.SlowQueryLog;
+import ru.yandex.practicum.filmorate.storage.jdbc.StatementCountingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * оборачивает DataSource приложения для подсчета выполненных SQL-запросов и журнала медленных запросов
+ */
+@Configuration
+public class DataSourceConfig {
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof StatementCountingDataSource)) {
+                    return new StatementCountingDataSource((DataSource) bean, slowQueryLog.getIfAvailable());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SlowQueryLog slowQueryLog(@Value("${filmorate.slow-query.enabled:false}") boolean enabled
+            , @Value("${filmorate.slow-query.threshold-ms:100}") long thresholdMillis
+            , @Value("${filmorate.slow-query.capacity:1000}") int capacity) {
+        // выключенный журнал создается с нулевым размером: запросы выполняются без сбора параметров и времени
+        return new SlowQueryLog(thresholdMillis, enabled ? capacity : 0);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры публичных методов хранилищ (filmorate.storage) и сервисов (filmorate.service)
+ * с тегами class и method, перегруженные методы учитываются одним таймером.
+ * Таймер ищется в реестре один раз для пары класс - метод, при вызове метода остается только
+ * поиск в ConcurrentHashMap и замер времени.
+ * Вызовы методов объекта изнутри самого объекта не учитываются
+ */
+@Aspect
+@Component
+public class MethodMetricsAspect {
+    private final MeterRegistry registry;
+    private final Map<Class<?>, Map<Method, Timer>> storageTimers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<Method, Timer>> serviceTimers = new ConcurrentHashMap<>();
+
+    public MethodMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage..*Storage.*(..))")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "filmorate.storage", storageTimers);
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.service..*Service.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "filmorate.service", serviceTimers);
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String name, Map<Class<?>, Map<Method, Timer>> timers)
+            throws Throwable {
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timer timer = timers.computeIfAbsent(targetClass, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, m -> Timer.builder(name)
+                        .tag("class", targetClass.getSimpleName())
+                        .tag("method", m.getName())
+                        .register(registry));
+
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
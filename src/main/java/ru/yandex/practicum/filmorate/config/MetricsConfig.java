@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryCounter;
+
+/**
+ * Метрики кэшей и хранилищ, которые не создаются автоматически Spring Boot Actuator:
+ * статистика Caffeine для всех кэшей EntityCaches (cache.gets, cache.evictions, ...), возраст списков
+ * популярных фильмов и общее количество SQL-запросов и прочитанных строк.
+ * Кэши сервисов регистрируются в конструкторах сервисов, поэтому метрики создаются после запуска контекста
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricsConfig {
+    private final MeterRegistry registry;
+    private final EntityCaches caches;
+    private final PopularFilmsCache popularFilmsCache;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void bindMetrics() {
+        caches.getCaches().forEach((name, cache) -> CaffeineCacheMetrics.monitor(registry, cache, name));
+
+        Gauge.builder("filmorate.popular.age", popularFilmsCache, PopularFilmsCache::getMaxAgeMillis)
+                .description("возраст самого старого из отдаваемых списков популярных фильмов")
+                .baseUnit("milliseconds")
+                .register(registry);
+        FunctionCounter.builder("filmorate.sql.statements", QueryCounter.class, c -> QueryCounter.getTotalCount())
+                .description("выполненные SQL-запросы")
+                .register(registry);
+        FunctionCounter.builder("filmorate.sql.rows", QueryCounter.class, c -> QueryCounter.getTotalRowCount())
+                .description("прочитанные строки результатов SQL-запросов")
+                .register(registry);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.storage.RequestIdentityMap;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryCounter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Открывает на время HTTP-запроса карту загруженных объектов и пишет в лог (уровень DEBUG)
+ * количество SQL-запросов, выполненных при его обработке.
+ * Количество SQL-запросов и прочитанных строк на HTTP-запрос записывается в распределения
+ * filmorate.http.sql.statements и filmorate.http.sql.rows с тегами method и uri (шаблон пути эндпоинта)
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RequestScopeFilter extends OncePerRequestFilter {
+    private final RequestIdentityMap identityMap;
+    private final MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        identityMap.begin();
+        QueryCounter.resetThreadCount();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            identityMap.end();
+            long statements = QueryCounter.getThreadCount();
+            log.debug("{} {} - SQL запросов: {}", request.getMethod(), request.getRequestURI(), statements);
+            recordSqlMetrics(request, statements, QueryCounter.getThreadRowCount());
+        }
+    }
+
+    private void recordSqlMetrics(HttpServletRequest request, long statements, long rows) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("filmorate.http.sql.statements")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(registry)
+                .record(statements);
+        DistributionSummary.builder("filmorate.http.sql.rows")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(registry)
+                .record(rows);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryCountingTaskDecorator;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * пулы потоков для параллельных запросов хранилищ
+ */
+@Configuration
+public class StorageExecutorConfig {
+    /**
+     * Пул для параллельной загрузки жанров и лайков фильмов.
+     * Размер ограничен, чтобы параллельные загрузки не занимали все соединения пула БД;
+     * при заполненной очереди задача выполняется в вызывающем потоке
+     *
+     * @param threads       количество потоков
+     * @param queueCapacity размер очереди задач
+     * @return пул потоков
+     */
+    @Bean(name = "filmChildLoadExecutor")
+    public ThreadPoolTaskExecutor filmChildLoadExecutor(
+            @Value("${filmorate.storage.film.child-load-threads:4}") int threads
+            , @Value("${filmorate.storage.film.child-load-queue:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("film-child-load-");
+        executor.setDaemon(true);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(new QueryCountingTaskDecorator());
+        return executor;
+    }
+}
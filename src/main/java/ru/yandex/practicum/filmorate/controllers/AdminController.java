@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+import ru.yandex.practicum.filmorate.exceptions.RecordingStateException;
+import ru.yandex.practicum.filmorate.models.CacheStatistics;
+import ru.yandex.practicum.filmorate.models.ClassHistogramEntry;
+import ru.yandex.practicum.filmorate.models.ErrorResponse;
+import ru.yandex.practicum.filmorate.models.HotSpot;
+import ru.yandex.practicum.filmorate.models.InfluenceJobResult;
+import ru.yandex.practicum.filmorate.models.JfrRecordingInfo;
+import ru.yandex.practicum.filmorate.models.SlowQuery;
+import ru.yandex.practicum.filmorate.models.SlowQueryStatistics;
+import ru.yandex.practicum.filmorate.service.DiagnosticsService;
+import ru.yandex.practicum.filmorate.service.InfluenceService;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.jdbc.SlowQueryLog;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin")
+@Slf4j
+@RequiredArgsConstructor
+public class AdminController {
+    private final EntityCaches entityCaches;
+    private final PopularFilmsCache popularFilmsCache;
+    private final InfluenceService influenceService;
+    private final SlowQueryLog slowQueryLog;
+    private final DiagnosticsService diagnosticsService;
+
+    /**
+     * вернуть статистику кэшей объектов
+     *
+     * @return статистика по имени кэша
+     */
+    @GetMapping("/caches")
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, CacheStatistics> getCacheStatistics() {
+        return entityCaches.getStatistics();
+    }
+
+    /**
+     * вернуть возраст самого старого списка популярных фильмов в режиме stale-while-revalidate
+     *
+     * @return возраст в миллисекундах
+     */
+    @GetMapping("/popular/age")
+    @ResponseStatus(HttpStatus.OK)
+    public long getPopularFilmsMaxAge() {
+        return popularFilmsCache.getMaxAgeMillis();
+    }
+
+    /**
+     * пересчитать оценки влияния пользователей
+     *
+     * @return результат расчета
+     */
+    @PostMapping("/influence")
+    @ResponseStatus(HttpStatus.OK)
+    public InfluenceJobResult recomputeInfluence() {
+        return influenceService.run();
+    }
+
+    /**
+     * вернуть последние медленные SQL-запросы
+     *
+     * @param limit максимальное количество запросов
+     * @return запросы, новые первыми
+     */
+    @GetMapping("/slow-queries")
+    @ResponseStatus(HttpStatus.OK)
+    public List<SlowQuery> getSlowQueries(@RequestParam(name = "limit", defaultValue = "100") int limit) {
+        checkPositive("limit", limit);
+        return slowQueryLog.getRecent(limit);
+    }
+
+    /**
+     * вернуть статистику медленных SQL-запросов по тексту запроса
+     *
+     * @param count количество запросов с наибольшим суммарным временем
+     * @return статистика запросов
+     */
+    @GetMapping("/slow-queries/top")
+    @ResponseStatus(HttpStatus.OK)
+    public List<SlowQueryStatistics> getTopSlowQueries(@RequestParam(name = "count", defaultValue = "10") int count) {
+        checkPositive("count", count);
+        return slowQueryLog.getTop(count);
+    }
+
+    /**
+     * очистить журнал медленных SQL-запросов
+     */
+    @DeleteMapping("/slow-queries")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void clearSlowQueries() {
+        slowQueryLog.clear();
+    }
+
+    /**
+     * начать запись Java Flight Recorder
+     *
+     * @param profile  набор настроек JFR: default или profile
+     * @param duration длительность записи, с
+     * @return состояние записи
+     */
+    @PostMapping("/jfr/start")
+    @ResponseStatus(HttpStatus.OK)
+    public JfrRecordingInfo startRecording(@RequestParam(name = "profile", defaultValue = "profile") String profile
+            , @RequestParam(name = "duration", defaultValue = "60") long duration) {
+        return diagnosticsService.startRecording(profile, duration);
+    }
+
+    /**
+     * остановить запись Java Flight Recorder
+     *
+     * @return состояние записи
+     */
+    @PostMapping("/jfr/stop")
+    @ResponseStatus(HttpStatus.OK)
+    public JfrRecordingInfo stopRecording() {
+        return diagnosticsService.stopRecording();
+    }
+
+    /**
+     * вернуть состояние последней записи Java Flight Recorder
+     *
+     * @return состояние записи
+     */
+    @GetMapping("/jfr")
+    @ResponseStatus(HttpStatus.OK)
+    public JfrRecordingInfo getRecording() {
+        return diagnosticsService.getRecording();
+    }
+
+    /**
+     * скачать файл последней остановленной записи Java Flight Recorder
+     *
+     * @return файл записи
+     */
+    @GetMapping("/jfr/file")
+    public ResponseEntity<Resource> getRecordingFile() {
+        Path file = diagnosticsService.getRecordingFile();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(new FileSystemResource(file));
+    }
+
+    /**
+     * вернуть места выделения памяти в коде приложения по данным записи Java Flight Recorder
+     *
+     * @param count количество мест
+     * @return места с наибольшим объемом выделенной памяти
+     */
+    @GetMapping("/jfr/hotspots/allocation")
+    @ResponseStatus(HttpStatus.OK)
+    public List<HotSpot> getAllocationHotSpots(@RequestParam(name = "count", defaultValue = "20") int count) {
+        checkPositive("count", count);
+        return diagnosticsService.getAllocationHotSpots(count);
+    }
+
+    /**
+     * вернуть места ожидания блокировок в коде приложения по данным записи Java Flight Recorder
+     *
+     * @param count количество мест
+     * @return места с наибольшим временем ожидания
+     */
+    @GetMapping("/jfr/hotspots/lock")
+    @ResponseStatus(HttpStatus.OK)
+    public List<HotSpot> getLockHotSpots(@RequestParam(name = "count", defaultValue = "20") int count) {
+        checkPositive("count", count);
+        return diagnosticsService.getLockHotSpots(count);
+    }
+
+    /**
+     * вернуть гистограмму классов кучи
+     *
+     * @param count количество классов
+     * @param live  true - только достижимые объекты, с полной сборкой мусора перед подсчетом
+     * @return классы с наибольшим объемом занимаемой памяти
+     */
+    @GetMapping("/heap/histogram")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ClassHistogramEntry> getClassHistogram(@RequestParam(name = "count", defaultValue = "50") int count
+            , @RequestParam(name = "live", defaultValue = "false") boolean live) {
+        checkPositive("count", count);
+        return diagnosticsService.getClassHistogram(count, live);
+    }
+
+    /**
+     * обработка исключения ParameterValidationException
+     * генерирует код ошибки HTTP HttpStatus.BAD_REQUEST
+     *
+     * @param e исключение ParameterValidationException
+     * @return объект ErrorResponse
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse parameterValidationExceptionHandler(ParameterValidationException e) {
+        log.info(e.getMessage());
+        return new ErrorResponse("error", e.getMessage());
+    }
+
+    /**
+     * обработка исключения RecordingStateException: запись JFR уже выполняется или еще не запускалась
+     * генерирует код ошибки HTTP HttpStatus.CONFLICT
+     *
+     * @param e исключение RecordingStateException
+     * @return объект ErrorResponse
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse recordingStateExceptionHandler(RecordingStateException e) {
+        log.info(e.getMessage());
+        return new ErrorResponse("error", e.getMessage());
+    }
+
+    private static void checkPositive(String name, int value) {
+        if (value < 1) {
+            throw new ParameterValidationException("Параметр " + name + " должен быть больше 0");
+        }
+    }
+}
@@ -3,15 +3,22 @@ package ru.yandex.practicum.filmorate.controllers;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.models.CachedResult;
 import ru.yandex.practicum.filmorate.models.ErrorResponse;
 import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.FilmField;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularFilmsPublisher;
 import ru.yandex.practicum.filmorate.validators.FilmValidator;
 
 import java.util.*;
@@ -22,27 +29,41 @@ import java.util.*;
 @RequiredArgsConstructor
 public class FilmController {
     private final FilmService filmService;
+    private final PopularFilmsPublisher popularFilmsPublisher;
 
     /**
-     * вернуть данные по всем фильмам
+     * вернуть данные по всем фильмам или по фильмам из списка ids.
+     * Для списка ids фильмы возвращаются в порядке списка, ненайденные id перечисляются в заголовке X-Missing-Ids
      *
+     * @param ids    список id фильмов через запятую, если не указан - то возвращаются все фильмы
+     * @param fields список возвращаемых полей через запятую, если не указан - то возвращаются все поля;
+     *               вместе с ids не используется
      * @return список объектов типа Film
      */
     @GetMapping
-    public List<Film> getAllFilms() {
-        return filmService.getAll();
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(name = "ids", required = false) List<Integer> ids
+            , @RequestParam(name = "fields", required = false) List<String> fields) {
+        if (ids == null) {
+            return ResponseEntity.ok(filmService.getAll(FilmField.parse(fields)));
+        }
+        if (fields != null) {
+            throw new ParameterValidationException("Параметры ids и fields не могут использоваться вместе");
+        }
+
+        return MissingIdsResponse.of(ids, filmService.getByIdList(ids), Film::getId);
     }
 
     /**
      * вернуть данные фильма с указанным id
      *
      * @param filmId id фильма
+     * @param fields список возвращаемых полей через запятую, если не указан - то возвращаются все поля
      * @return объект типа Film, статус OK если всё хорошо
      */
     @GetMapping("/{filmId}")
     @ResponseStatus(HttpStatus.OK)
-    public Film getFilmById(@PathVariable int filmId) {
-        Film film = filmService.getById(filmId);
+    public Film getFilmById(@PathVariable int filmId, @RequestParam(name = "fields", required = false) List<String> fields) {
+        Film film = filmService.getById(filmId, FilmField.parse(fields));
         if (film != null) {
             return film;
         } else {
@@ -113,13 +134,30 @@ public class FilmController {
     /**
      * вернуть список из N наиболее популярных фильмов по лайкам
      *
-     * @param count количество фильмов в списке, если не указано то берется 10
+     * В заголовке Age передается возраст списка в секундах (больше 0 в режиме stale-while-revalidate)
+     *
+     * @param count  количество фильмов в списке, если не указано то берется 10
+     * @param fields список возвращаемых полей через запятую, если не указан - то возвращаются все поля
      * @return список объектов типа Film
      */
     @GetMapping("/popular")
-    @ResponseStatus(HttpStatus.OK)
-    public List<Film> getPopularFilms(@RequestParam(name = "count", required = false) Integer count) {
-        return filmService.getPopularFilms(count);
+    public ResponseEntity<List<Film>> getPopularFilms(@RequestParam(name = "count", required = false) Integer count
+            , @RequestParam(name = "fields", required = false) List<String> fields) {
+        CachedResult<List<Film>> popularFilms = filmService.getPopularFilmsWithAge(count, FilmField.parse(fields));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, String.valueOf(popularFilms.getAgeMillis() / 1000))
+                .body(popularFilms.getValue());
+    }
+
+    /**
+     * подписаться на изменения списка популярных фильмов (Server-Sent Events).
+     * Первое событие содержит текущий список целиком, следующие - только изменившиеся позиции
+     *
+     * @return поток событий popular со списками объектов типа FilmRankDelta
+     */
+    @GetMapping(value = "/popular/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPopularFilms() {
+        return popularFilmsPublisher.subscribe();
     }
 
     /**
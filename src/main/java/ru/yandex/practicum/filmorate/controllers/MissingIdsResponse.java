@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * ответ на запрос списка объектов по id: объекты в теле, ненайденные id - в заголовке X-Missing-Ids
+ */
+class MissingIdsResponse {
+    static final String MISSING_IDS_HEADER = "X-Missing-Ids";
+
+    private MissingIdsResponse() {
+    }
+
+    /**
+     * сформировать ответ со списком найденных объектов
+     *
+     * @param ids      запрошенные id
+     * @param found    найденные объекты
+     * @param idGetter функция получения id объекта
+     * @return ответ со статусом OK
+     */
+    static <T> ResponseEntity<List<T>> of(List<Integer> ids, List<T> found, ToIntFunction<T> idGetter) {
+        Set<Integer> foundIds = new HashSet<>();
+        for (T object : found) {
+            foundIds.add(idGetter.applyAsInt(object));
+        }
+        String missingIds = ids.stream()
+                .filter(id -> !foundIds.contains(id))
+                .distinct()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!missingIds.isEmpty()) {
+            response.header(MISSING_IDS_HEADER, missingIds);
+        }
+        return response.body(found);
+    }
+}
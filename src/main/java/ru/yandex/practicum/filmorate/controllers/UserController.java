@@ -4,12 +4,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.models.ErrorResponse;
+import ru.yandex.practicum.filmorate.models.FeedEvent;
+import ru.yandex.practicum.filmorate.models.Film;
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
+import ru.yandex.practicum.filmorate.models.UserInfluence;
+import ru.yandex.practicum.filmorate.service.FeedService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendGraphService;
+import ru.yandex.practicum.filmorate.service.InfluenceService;
+import ru.yandex.practicum.filmorate.service.FriendsPopularFilmsService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.validators.UserValidator;
 
@@ -21,27 +31,45 @@ import java.util.*;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final FriendsPopularFilmsService friendsPopularFilmsService;
+    private final FeedService feedService;
+    private final FriendGraphService friendGraphService;
+    private final InfluenceService influenceService;
 
     /**
-     * вернуть данные по всем пользователям
+     * вернуть данные по всем пользователям или по пользователям из списка ids.
+     * Для списка ids пользователи возвращаются в порядке списка, ненайденные id перечисляются в заголовке X-Missing-Ids
      *
+     * @param ids    список id пользователей через запятую, если не указан - то возвращаются все пользователи
+     * @param fields список возвращаемых полей через запятую, если не указан - то возвращаются все поля;
+     *               вместе с ids не используется
      * @return список объектов типа User
      */
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAll();
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(name = "ids", required = false) List<Integer> ids
+            , @RequestParam(name = "fields", required = false) List<String> fields) {
+        if (ids == null) {
+            return ResponseEntity.ok(userService.getAll(UserField.parse(fields)));
+        }
+        if (fields != null) {
+            throw new ParameterValidationException("Параметры ids и fields не могут использоваться вместе");
+        }
+
+        return MissingIdsResponse.of(ids, userService.getByIdList(ids), User::getId);
     }
 
     /**
      * вернуть данные пользователя с указанным id
      *
      * @param userId id пользователя
+     * @param fields список возвращаемых полей через запятую, если не указан - то возвращаются все поля
      * @return объект типа User, статус OK если всё хорошо, статус NOT_FOUND если такого пользователя нет
      */
     @GetMapping("/{userId}")
     @ResponseStatus(HttpStatus.OK)
-    public User getUserById(@PathVariable int userId) {
-        User user = userService.getById(userId);
+    public User getUserById(@PathVariable int userId, @RequestParam(name = "fields", required = false) List<String> fields) {
+        User user = userService.getById(userId, UserField.parse(fields));
         if (user != null) {
             return user;
         } else {
@@ -141,6 +169,95 @@ public class UserController {
         return userService.getMutualFriendsById(userId, otherId);
     }
 
+    /**
+     * возвращает страницу ленты активности друзей пользователя, от новых событий к старым.
+     * Для следующей страницы в параметре before передается eventId последнего полученного события
+     *
+     * @param userId id пользователя
+     * @param before id события, начиная с которого события не возвращаются; если не указан - с самого нового
+     * @param size   размер страницы, по умолчанию 20
+     * @return список событий
+     */
+    @GetMapping("/{userId}/feed")
+    @ResponseStatus(HttpStatus.OK)
+    public List<FeedEvent> getFeed(@PathVariable int userId
+            , @RequestParam(name = "before", required = false) Long before
+            , @RequestParam(name = "size", defaultValue = "20") int size) {
+        return feedService.getFeed(userId, before, size);
+    }
+
+    /**
+     * возвращает оценку влияния пользователя
+     *
+     * @param userId id пользователя
+     * @return объект типа UserInfluence
+     */
+    @GetMapping("/{userId}/influence")
+    @ResponseStatus(HttpStatus.OK)
+    public UserInfluence getInfluence(@PathVariable int userId) {
+        return influenceService.getInfluence(userId);
+    }
+
+    /**
+     * возвращает кратчайшую цепочку друзей от одного пользователя до другого
+     *
+     * @param userId  id первого пользователя
+     * @param otherId id второго пользователя
+     * @return список пользователей цепочки от первого до второго, пустой если цепочка не найдена
+     */
+    @GetMapping("/{userId}/path/{otherId}")
+    @ResponseStatus(HttpStatus.OK)
+    public List<User> getFriendshipPath(@PathVariable int userId, @PathVariable int otherId) {
+        return friendGraphService.getPath(userId, otherId);
+    }
+
+    /**
+     * возвращает список фильмов, популярных среди друзей пользователя
+     *
+     * @param userId id пользователя
+     * @param count  количество фильмов в списке, если не указано то берется 10
+     * @return список объектов типа Film по убыванию количества лайков друзей
+     */
+    @GetMapping("/{userId}/friends/films/popular")
+    @ResponseStatus(HttpStatus.OK)
+    public List<Film> getFriendsPopularFilms(@PathVariable int userId
+            , @RequestParam(name = "count", required = false) Integer count) {
+        return friendsPopularFilmsService.getPopularFilms(userId, count);
+    }
+
+    /**
+     * возвращает страницу фильмов, которые лайкнул пользователь, в порядке id
+     *
+     * @param userId id пользователя
+     * @param from   количество пропускаемых фильмов, по умолчанию 0
+     * @param size   размер страницы, по умолчанию 10
+     * @return список объектов типа Film
+     */
+    @GetMapping("/{userId}/likes")
+    @ResponseStatus(HttpStatus.OK)
+    public List<Film> getLikedFilms(@PathVariable int userId
+            , @RequestParam(name = "from", defaultValue = "0") int from
+            , @RequestParam(name = "size", defaultValue = "10") int size) {
+        return filmService.getLikedFilms(userId, from, size);
+    }
+
+    /**
+     * возвращает страницу фильмов, которые лайкнули оба пользователя, в порядке id
+     *
+     * @param userId  id пользователя 1
+     * @param otherId id пользователя 2
+     * @param from    количество пропускаемых фильмов, по умолчанию 0
+     * @param size    размер страницы, по умолчанию 10
+     * @return список объектов типа Film
+     */
+    @GetMapping("/{userId}/likes/common/{otherId}")
+    @ResponseStatus(HttpStatus.OK)
+    public List<Film> getCommonLikedFilms(@PathVariable int userId, @PathVariable int otherId
+            , @RequestParam(name = "from", defaultValue = "0") int from
+            , @RequestParam(name = "size", defaultValue = "10") int size) {
+        return filmService.getCommonLikedFilms(userId, otherId, from, size);
+    }
+
     /**
      * обработка исключений ParameterValidationException, ValidationException
      * генерирует код ошибки HTTP HttpStatus.BAD_REQUEST
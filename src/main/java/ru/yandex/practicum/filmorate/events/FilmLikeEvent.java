@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.Data;
+
+/**
+ * событие изменения лайка фильма, публикуется сервисом после записи в хранилище
+ */
+@Data
+public class FilmLikeEvent {
+    // id фильма
+    private final int filmId;
+    // id пользователя
+    private final int userId;
+    // true - лайк поставлен, false - лайк убран
+    private final boolean liked;
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.events;
+
+import lombok.Data;
+
+/**
+ * событие изменения списка друзей пользователя, публикуется сервисом после записи в хранилище
+ */
+@Data
+public class FriendshipEvent {
+    // id пользователя, который изменил свой список друзей
+    private final int userId;
+    // id добавленного или удаленного друга
+    private final int friendId;
+    // true - друг добавлен, false - друг удален
+    private final boolean added;
+}
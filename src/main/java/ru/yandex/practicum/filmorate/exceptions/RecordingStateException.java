@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+public class RecordingStateException extends RuntimeException {
+    public RecordingStateException() {
+        super();
+    }
+
+    public RecordingStateException(String message) {
+        super(message);
+    }
+
+    public RecordingStateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RecordingStateException(Throwable cause) {
+        super(cause);
+    }
+}
\ No newline at end of file
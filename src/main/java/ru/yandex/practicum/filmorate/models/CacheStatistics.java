@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * статистика кэша
+ */
+@Data
+public class CacheStatistics {
+    // количество попаданий
+    private final long hitCount;
+    // количество промахов
+    private final long missCount;
+    // доля попаданий
+    private final double hitRate;
+    // количество вытесненных записей
+    private final long evictionCount;
+    // примерное количество записей
+    private final long size;
+    // оценка занимаемой памяти, байт
+    private final long weightedSize;
+}
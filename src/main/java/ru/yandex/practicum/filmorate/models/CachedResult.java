@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * результат, который мог быть вычислен ранее
+ *
+ * @param <T> тип результата
+ */
+@Data
+public class CachedResult<T> {
+    // результат
+    private final T value;
+    // сколько миллисекунд назад результат был вычислен
+    private final long ageMillis;
+}
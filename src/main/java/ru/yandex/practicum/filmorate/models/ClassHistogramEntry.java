@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * строка гистограммы классов кучи
+ */
+@Data
+public class ClassHistogramEntry {
+    // имя класса
+    private final String className;
+    // количество объектов
+    private final long instances;
+    // занимаемая объектами память, байт
+    private final long bytes;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * количество записей, созданных генератором набора данных
+ */
+@Data
+public class DatasetResult {
+    private final int users;
+    private final int films;
+    private final int filmGenres;
+    private final int friendships;
+    private final int likes;
+    // время генерации и записи, мс
+    private final long durationMillis;
+}
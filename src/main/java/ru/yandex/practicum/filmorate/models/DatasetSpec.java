@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * параметры генерируемого набора данных
+ */
+@Data
+public class DatasetSpec {
+    // количество пользователей, id от 1 до users
+    private final int users;
+    // количество фильмов, id от 1 до films
+    private final int films;
+    // количество друзей, добавляемых каждым пользователем (граф дружбы строится предпочтительным присоединением)
+    private final int friendsPerUser;
+    // среднее количество лайков пользователя
+    private final int likesPerUser;
+    // показатель распределения Ципфа для популярности фильмов, 0 - равномерное распределение
+    private final double zipfExponent;
+    // начальное значение генератора случайных чисел, одинаковые параметры дают одинаковые данные
+    private final long seed;
+}
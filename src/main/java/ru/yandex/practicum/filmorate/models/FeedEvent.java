@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * событие ленты активности
+ */
+@Data
+public class FeedEvent {
+    // id события, возрастает в порядке появления событий, используется для постраничного чтения ленты
+    private final long eventId;
+    // время события, миллисекунды от начала эпохи
+    private final long timestamp;
+    // id пользователя, совершившего действие
+    private final int userId;
+    // тип события
+    private final FeedEventType eventType;
+    // id фильма или друга, в зависимости от типа события
+    private final int entityId;
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.models;
+
+/**
+ * тип события ленты активности
+ */
+public enum FeedEventType {
+    // пользователь поставил лайк фильму, entityId - id фильма
+    LIKE,
+    // пользователь добавил друга, entityId - id друга
+    FRIEND
+}
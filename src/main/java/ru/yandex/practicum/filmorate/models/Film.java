@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -14,8 +15,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * поля, не загруженные из хранилища (см. параметр fields), имеют значение null и не выводятся в JSON
+ */
 @Data
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Film {
     /**
      * целочисленный идентификатор
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.models;
+
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * поля объекта Film, которые можно запросить через параметр fields
+ */
+public enum FilmField {
+    ID("id"),
+    NAME("name"),
+    DESCRIPTION("description"),
+    RELEASE_DATE("releaseDate"),
+    DURATION("duration"),
+    MPA("mpa"),
+    GENRES("genres");
+
+    /**
+     * полный набор полей, используется если параметр fields не указан
+     */
+    public static final Set<FilmField> ALL = Collections.unmodifiableSet(EnumSet.allOf(FilmField.class));
+
+    /**
+     * имя поля в JSON
+     */
+    private final String jsonName;
+
+    FilmField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    /**
+     * преобразовать список имен полей из запроса в набор полей, поле id добавляется всегда
+     *
+     * @param names список имен полей в JSON, если null или пустой - то возвращаются все поля
+     * @return набор полей
+     * @throws ParameterValidationException если указано неизвестное поле
+     */
+    public static Set<FilmField> parse(Collection<String> names) throws ParameterValidationException {
+        if (names == null || names.isEmpty()) {
+            return ALL;
+        }
+
+        Set<FilmField> fields = EnumSet.of(ID);
+        for (String name : names) {
+            fields.add(fromJsonName(name.trim()));
+        }
+        return fields;
+    }
+
+    private static FilmField fromJsonName(String name) throws ParameterValidationException {
+        for (FilmField field : values()) {
+            if (field.jsonName.equals(name)) {
+                return field;
+            }
+        }
+        throw new ParameterValidationException("Неизвестное поле фильма: " + name);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * изменение позиции фильма в списке популярных
+ */
+@Data
+public class FilmRankDelta {
+    // id фильма
+    private final int filmId;
+    // позиция в списке начиная с 1, null если фильм выбыл из списка
+    private final Integer rank;
+    // количество лайков
+    private final int likes;
+}
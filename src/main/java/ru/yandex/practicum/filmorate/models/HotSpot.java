@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * место в коде приложения, которому приписаны события записи JFR: первый метод классов пакетов
+ * storage, service или controllers в стеке вызовов события
+ */
+@Data
+public class HotSpot {
+    // класс и метод
+    private final String frame;
+    // количество событий
+    private final long events;
+    // для выделения памяти - оценка выделенных байт, для блокировок - суммарное время ожидания в мс
+    private final double total;
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * результат расчета оценок влияния пользователей
+ */
+@Data
+public class InfluenceJobResult {
+    // количество пользователей в графе дружбы
+    private final int userCount;
+    // количество ребер графа дружбы
+    private final int edgeCount;
+    // количество выполненных итераций
+    private final int iterations;
+    // сумма изменений оценок на последней итерации
+    private final double delta;
+    // true - изменение оценок стало меньше заданной точности до исчерпания итераций
+    private final boolean converged;
+    // время расчета и сохранения, мс
+    private final long durationMillis;
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * состояние записи Java Flight Recorder
+ */
+@Data
+public class JfrRecordingInfo {
+    // id записи в JVM
+    private final long id;
+    // набор настроек: default или profile
+    private final String profile;
+    // состояние записи: RUNNING, STOPPED, CLOSED
+    private final String state;
+    // время начала записи, миллисекунды от начала эпохи
+    private final long startTime;
+    // длительность, после которой запись останавливается автоматически, с
+    private final long durationSeconds;
+    // файл записи, данные в нем появляются после остановки записи
+    private final String file;
+}
@@ -2,12 +2,18 @@ package ru.yandex.practicum.filmorate.models;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 
+/**
+ * Элемент справочника. Хранилища отдают общие экземпляры для одинаковых id и названия
+ * (DictionaryFlyweights), поэтому объект неизменяемый
+ */
 @Data
 @AllArgsConstructor
-@RequiredArgsConstructor
 public class MpaRating {
     private final Integer id;
-    private String name;
-}
\ No newline at end of file
+    private final String name;
+
+    public MpaRating(Integer id) {
+        this(id, null);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * SQL-запрос, выполнявшийся дольше порога журнала медленных запросов
+ */
+@Data
+public class SlowQuery {
+    // время завершения запроса, миллисекунды от начала эпохи
+    private final long timestamp;
+    // текст запроса
+    private final String sql;
+    // значения параметров запроса по порядку, для пакетного выполнения - последнего набора параметров
+    private final List<String> parameters;
+    // время выполнения запроса и чтения строк результата, мс
+    private final double durationMillis;
+    // количество прочитанных строк результата или измененных строк
+    private final long rows;
+    // метод хранилища, выполнивший запрос (Класс.метод), или null если запрос выполнен не из хранилища
+    private final String caller;
+    // имя потока
+    private final String thread;
+}
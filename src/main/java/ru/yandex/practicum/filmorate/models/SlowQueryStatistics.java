@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+import java.util.Set;
+
+/**
+ * статистика медленных выполнений одного SQL-запроса; запросы с разным количеством значений
+ * в списках IN (...) и разными числовыми константами учитываются как один запрос
+ */
+@Data
+public class SlowQueryStatistics {
+    // текст запроса без числовых констант
+    private final String sql;
+    // количество медленных выполнений
+    private final long count;
+    // суммарное время выполнения, мс
+    private final double totalMillis;
+    // среднее время выполнения, мс
+    private final double meanMillis;
+    // максимальное время выполнения, мс
+    private final double maxMillis;
+    // суммарное количество строк
+    private final long rows;
+    // методы хранилищ, выполнявшие запрос
+    private final Set<String> callers;
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.models;
+
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * поля объекта User, которые можно запросить через параметр fields
+ */
+public enum UserField {
+    ID("id"),
+    EMAIL("email"),
+    LOGIN("login"),
+    NAME("name"),
+    BIRTHDAY("birthday");
+
+    /**
+     * полный набор полей, используется если параметр fields не указан
+     */
+    public static final Set<UserField> ALL = Collections.unmodifiableSet(EnumSet.allOf(UserField.class));
+
+    /**
+     * имя поля в JSON
+     */
+    private final String jsonName;
+
+    UserField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    /**
+     * преобразовать список имен полей из запроса в набор полей, поле id добавляется всегда
+     *
+     * @param names список имен полей в JSON, если null или пустой - то возвращаются все поля
+     * @return набор полей
+     * @throws ParameterValidationException если указано неизвестное поле
+     */
+    public static Set<UserField> parse(Collection<String> names) throws ParameterValidationException {
+        if (names == null || names.isEmpty()) {
+            return ALL;
+        }
+
+        Set<UserField> fields = EnumSet.of(ID);
+        for (String name : names) {
+            fields.add(fromJsonName(name.trim()));
+        }
+        return fields;
+    }
+
+    private static UserField fromJsonName(String name) throws ParameterValidationException {
+        for (UserField field : values()) {
+            if (field.jsonName.equals(name)) {
+                return field;
+            }
+        }
+        throw new ParameterValidationException("Неизвестное поле пользователя: " + name);
+    }
+}
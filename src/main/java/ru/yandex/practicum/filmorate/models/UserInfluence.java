@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.models;
+
+import lombok.Data;
+
+/**
+ * оценка влияния пользователя
+ */
+@Data
+public class UserInfluence {
+    // id пользователя
+    private final int userId;
+    // оценка влияния, среднее значение по всем пользователям равно 1
+    private final double score;
+    // false - оценка еще не рассчитывалась, используется среднее значение
+    private final boolean computed;
+}
@@ -0,0 +1,336 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+import ru.yandex.practicum.filmorate.exceptions.RecordingStateException;
+import ru.yandex.practicum.filmorate.models.ClassHistogramEntry;
+import ru.yandex.practicum.filmorate.models.HotSpot;
+import ru.yandex.practicum.filmorate.models.JfrRecordingInfo;
+
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Диагностика работающего приложения без доступа к серверу: запись Java Flight Recorder по запросу,
+ * места выделения памяти и ожидания блокировок в коде приложения по данным записи, гистограмма классов кучи.
+ * Одновременно выполняется не больше одной записи, ее длительность и размер ограничены
+ * (filmorate.diagnostics.jfr.*), сохраняется только файл последней записи.
+ * Наборы настроек JFR: default - накладные расходы около 1%, выделение памяти учитывается только выборочно;
+ * profile - около 2%, больше событий выделения памяти и блокировок.
+ * События, в которые JVM пишет переменные окружения, системные свойства, аргументы запуска и командные строки
+ * процессов, в записи отключены: в них могут быть пароли и токены, а файл записи отдается через /admin/jfr/file
+ */
+@Service
+@Slf4j
+public class DiagnosticsService {
+    private static final Set<String> PROFILES = Set.of("default", "profile");
+    private static final List<String> OWN_PACKAGES = List.of("ru.yandex.practicum.filmorate.storage."
+            , "ru.yandex.practicum.filmorate.service.", "ru.yandex.practicum.filmorate.controllers.");
+    // выборка выделений памяти (JDK 16+), вес - оценка памяти, выделенной между выборками
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final Set<String> TLAB_ALLOCATIONS = Set.of("jdk.ObjectAllocationInNewTLAB"
+            , "jdk.ObjectAllocationOutsideTLAB");
+    private static final Set<String> LOCK_EVENTS = Set.of("jdk.JavaMonitorEnter", "jdk.ThreadPark");
+    static final Set<String> SENSITIVE_EVENTS = Set.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty"
+            , "jdk.JVMInformation", "jdk.SystemProcess");
+    private static final Pattern HISTOGRAM_LINE = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final long maxDurationSeconds;
+    private final long maxSizeBytes;
+
+    private Recording recording;
+    private String profile;
+    private Path file;
+
+    @Autowired
+    public DiagnosticsService(
+            @Value("${filmorate.diagnostics.jfr.directory:${java.io.tmpdir}/filmorate-jfr}") String directory
+            , @Value("${filmorate.diagnostics.jfr.max-duration-seconds:600}") long maxDurationSeconds
+            , @Value("${filmorate.diagnostics.jfr.max-size-mb:100}") long maxSizeMb) {
+        this.directory = Paths.get(directory);
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * начать запись JFR, запись останавливается автоматически через durationSeconds.
+     * Файл предыдущей записи удаляется
+     *
+     * @param profile         набор настроек: default или profile
+     * @param durationSeconds длительность записи, не больше filmorate.diagnostics.jfr.max-duration-seconds
+     * @return состояние записи
+     * @throws RecordingStateException если запись уже выполняется
+     */
+    public synchronized JfrRecordingInfo startRecording(String profile, long durationSeconds) {
+        if (!PROFILES.contains(profile)) {
+            throw new ParameterValidationException("Неизвестный набор настроек JFR: " + profile
+                    + ", допустимые значения: " + PROFILES);
+        }
+        if (durationSeconds < 1 || durationSeconds > maxDurationSeconds) {
+            throw new ParameterValidationException("Длительность записи должна быть от 1 до "
+                    + maxDurationSeconds + " с");
+        }
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new RecordingStateException("Запись JFR уже выполняется, id " + recording.getId());
+        }
+
+        closeRecording();
+        try {
+            Files.createDirectories(directory);
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            Map<String, String> settings = new HashMap<>(Configuration.getConfiguration(profile).getSettings());
+            SENSITIVE_EVENTS.forEach(event -> settings.put(event + "#enabled", "false"));
+            Recording newRecording = new Recording(settings);
+            newRecording.setName("filmorate-" + profile);
+            newRecording.setDuration(Duration.ofSeconds(durationSeconds));
+            newRecording.setMaxSize(maxSizeBytes);
+            newRecording.setToDisk(true);
+            file = directory.resolve("filmorate-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+            newRecording.setDestination(file);
+            newRecording.start();
+            recording = newRecording;
+            this.profile = profile;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Не удалось прочитать настройки JFR " + profile, e);
+        }
+        log.info("Запущена запись JFR {}, настройки {}, длительность {} с", recording.getId(), profile, durationSeconds);
+        return getRecording();
+    }
+
+    /**
+     * остановить запись JFR и сохранить ее в файл
+     *
+     * @return состояние записи
+     * @throws RecordingStateException если запись не запускалась
+     */
+    public synchronized JfrRecordingInfo stopRecording() {
+        checkRecording();
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Остановлена запись JFR {}, файл {}", recording.getId(), file);
+        }
+        return getRecording();
+    }
+
+    /**
+     * состояние последней записи JFR
+     *
+     * @throws RecordingStateException если запись не запускалась
+     */
+    public synchronized JfrRecordingInfo getRecording() {
+        checkRecording();
+        long startTime = recording.getStartTime() == null ? 0 : recording.getStartTime().toEpochMilli();
+        long duration = recording.getDuration() == null ? 0 : recording.getDuration().toSeconds();
+        return new JfrRecordingInfo(recording.getId(), profile, recording.getState().name(), startTime, duration
+                , file.toString());
+    }
+
+    /**
+     * файл последней остановленной записи JFR для анализа в JDK Mission Control
+     *
+     * @throws RecordingStateException если запись не запускалась или еще выполняется
+     */
+    public synchronized Path getRecordingFile() {
+        checkRecording();
+        if (recording.getState() == RecordingState.RUNNING || !Files.exists(file)) {
+            throw new RecordingStateException("Запись JFR " + recording.getId() + " еще не остановлена");
+        }
+        return file;
+    }
+
+    /**
+     * места выделения памяти в коде приложения по данным последней записи; во время записи используются
+     * данные, собранные к моменту вызова
+     *
+     * @param count количество мест с наибольшим объемом выделенной памяти
+     * @return места выделения памяти, total - оценка выделенных байт
+     */
+    public List<HotSpot> getAllocationHotSpots(int count) {
+        Map<String, double[]> samples = new HashMap<>();
+        Map<String, double[]> tlab = new HashMap<>();
+        readEvents(event -> {
+            String type = event.getEventType().getName();
+            if (type.equals(ALLOCATION_SAMPLE)) {
+                add(samples, event, event.getLong("weight"));
+            } else if (TLAB_ALLOCATIONS.contains(type)) {
+                add(tlab, event, type.endsWith("InNewTLAB") ? event.getLong("tlabSize") : event.getLong("allocationSize"));
+            }
+        });
+        // события TLAB и выборки описывают одни и те же выделения, используется один источник
+        return top(samples.isEmpty() ? tlab : samples, count);
+    }
+
+    /**
+     * места ожидания блокировок (synchronized и java.util.concurrent) в коде приложения по данным последней записи
+     *
+     * @param count количество мест с наибольшим временем ожидания
+     * @return места ожидания, total - суммарное время ожидания в мс
+     */
+    public List<HotSpot> getLockHotSpots(int count) {
+        Map<String, double[]> locks = new HashMap<>();
+        readEvents(event -> {
+            if (LOCK_EVENTS.contains(event.getEventType().getName())) {
+                add(locks, event, event.getDuration().toNanos() / 1_000_000.0);
+            }
+        });
+        return top(locks, count);
+    }
+
+    /**
+     * гистограмма классов кучи (jcmd GC.class_histogram)
+     *
+     * @param count количество классов с наибольшим объемом памяти
+     * @param live  true - учитывать только достижимые объекты, перед подсчетом выполняется полная сборка мусора;
+     *              false - учитываются все объекты кучи без сборки мусора
+     * @return строки гистограммы по убыванию занимаемой памяти
+     */
+    public List<ClassHistogramEntry> getClassHistogram(int count, boolean live) {
+        String output;
+        try {
+            output = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram"
+                    , new Object[]{live ? new String[0] : new String[]{"-all"}}
+                    , new String[]{String[].class.getName()});
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось получить гистограмму классов", e);
+        }
+
+        List<ClassHistogramEntry> entries = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            Matcher matcher = HISTOGRAM_LINE.matcher(line);
+            if (matcher.find()) {
+                entries.add(new ClassHistogramEntry(matcher.group(3), Long.parseLong(matcher.group(1))
+                        , Long.parseLong(matcher.group(2))));
+                if (entries.size() == count) {
+                    break;
+                }
+            }
+        }
+        return entries;
+    }
+
+    @PreDestroy
+    public synchronized void closeRecording() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void checkRecording() {
+        if (recording == null) {
+            throw new RecordingStateException("Запись JFR не запускалась");
+        }
+    }
+
+    /**
+     * прочитать события последней записи; выполняющаяся запись копируется во временный файл
+     */
+    private void readEvents(Consumer<RecordedEvent> consumer) {
+        Path source;
+        Path snapshot = null;
+        synchronized (this) {
+            checkRecording();
+            try {
+                if (recording.getState() == RecordingState.RUNNING) {
+                    snapshot = Files.createTempFile(directory, "snapshot-", ".jfr");
+                    recording.dump(snapshot);
+                    source = snapshot;
+                } else {
+                    source = getRecordingFile();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        try (RecordingFile recordingFile = new RecordingFile(source)) {
+            while (recordingFile.hasMoreEvents()) {
+                consumer.accept(recordingFile.readEvent());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (snapshot != null) {
+                try {
+                    Files.deleteIfExists(snapshot);
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить временный файл записи JFR {}", snapshot, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * добавить событие к месту в коде приложения; события без методов приложения в стеке не учитываются
+     */
+    private static void add(Map<String, double[]> hotSpots, RecordedEvent event, double value) {
+        String frame = findOwnFrame(event.getStackTrace());
+        if (frame != null) {
+            double[] totals = hotSpots.computeIfAbsent(frame, f -> new double[2]);
+            totals[0]++;
+            totals[1] += value;
+        }
+    }
+
+    private static String findOwnFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String className = frame.getMethod().getType().getName();
+            if (OWN_PACKAGES.stream().anyMatch(className::startsWith)) {
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber();
+            }
+        }
+        return null;
+    }
+
+    private static List<HotSpot> top(Map<String, double[]> hotSpots, int count) {
+        return hotSpots.entrySet().stream()
+                .map(e -> new HotSpot(e.getKey(), (long) e.getValue()[0], e.getValue()[1]))
+                .sorted(Comparator.comparingDouble(HotSpot::getTotal).reversed())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.events.FriendshipEvent;
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.models.FeedEvent;
+import ru.yandex.practicum.filmorate.models.FeedEventType;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Лента активности друзей: лайки и добавления в друзья, совершенные друзьями пользователя.
+ * При событии оно сразу записывается в ленты всех пользователей, у которых его автор в друзьях (fan-out on write).
+ * Если таких пользователей больше filmorate.feed.celebrity-threshold, событие записывается только в ленту
+ * событий автора, а при чтении ленты объединяются события из ленты пользователя и лент событий его друзей
+ * (fan-out on read). Каждая лента хранит не больше filmorate.feed.timeline-size последних событий.
+ * Ленты хранятся только в памяти, при чтении к film_likes и user_friends не обращаются:
+ * список друзей читающего пользователя берется из кэширующего хранилища пользователей
+ */
+@Service
+public class FeedService {
+    /**
+     * максимальный размер страницы ленты
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final UserStorage userStorage;
+    private final int timelineSize;
+    private final int celebrityThreshold;
+    private final AtomicLong lastEventId = new AtomicLong();
+
+    /**
+     * ленты пользователей, заполняемые при записи событий
+     */
+    private final Cache<Integer, Timeline> inboxes;
+
+    /**
+     * ленты событий пользователей с большим количеством подписчиков, читаемые при чтении ленты
+     */
+    private final Cache<Integer, Timeline> outboxes;
+
+    @Autowired
+    public FeedService(@Qualifier("cachingUserStorage") UserStorage userStorage
+            , EntityCaches caches
+            , @Value("${filmorate.feed.timeline-size:200}") int timelineSize
+            , @Value("${filmorate.feed.celebrity-threshold:1000}") int celebrityThreshold
+            , @Value("${filmorate.feed.max-timelines:100000}") long maxTimelines) {
+        this.userStorage = userStorage;
+        this.timelineSize = timelineSize;
+        this.celebrityThreshold = celebrityThreshold;
+        this.inboxes = Caffeine.newBuilder().maximumSize(maxTimelines).recordStats().build();
+        this.outboxes = Caffeine.newBuilder().maximumSize(maxTimelines).recordStats().build();
+        caches.register("feedInboxes", inboxes);
+        caches.register("feedOutboxes", outboxes);
+    }
+
+    /**
+     * записать лайк в ленты активности
+     *
+     * @param event событие изменения лайка
+     */
+    @EventListener
+    public void onFilmLike(FilmLikeEvent event) {
+        if (event.isLiked()) {
+            publish(event.getUserId(), FeedEventType.LIKE, event.getFilmId());
+        }
+    }
+
+    /**
+     * записать добавление друга в ленты активности
+     *
+     * @param event событие изменения списка друзей
+     */
+    @EventListener
+    public void onFriendship(FriendshipEvent event) {
+        if (event.isAdded()) {
+            publish(event.getUserId(), FeedEventType.FRIEND, event.getFriendId());
+        }
+    }
+
+    /**
+     * вернуть страницу ленты активности друзей пользователя, от новых событий к старым
+     *
+     * @param userId id пользователя
+     * @param before id события, события начиная с которого не возвращаются; null - с самого нового события
+     * @param size   размер страницы
+     * @return список событий
+     * @throws UserNotFoundException        если пользователь не найден
+     * @throws ParameterValidationException если размер страницы вне диапазона 1..MAX_PAGE_SIZE
+     */
+    public List<FeedEvent> getFeed(int userId, Long before, int size)
+            throws UserNotFoundException, ParameterValidationException {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ParameterValidationException("Параметр size должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+
+        User user = userStorage.getById(userId);
+        if (user == null) {
+            throw new UserNotFoundException("Пользователь с id " + userId + " не найден");
+        }
+
+        long beforeEventId = before == null ? Long.MAX_VALUE : before;
+        Set<Integer> friendIdSet = user.getFriendIdSet();
+        List<FeedEvent> events = new ArrayList<>();
+
+        //в ленте могут остаться события пользователей, удаленных из друзей после записи,
+        //они пропускаются, и чтение продолжается до заполнения страницы
+        Timeline inbox = inboxes.getIfPresent(userId);
+        if (inbox != null) {
+            events.addAll(inbox.getPage(beforeEventId, size, event -> friendIdSet.contains(event.getUserId())));
+        }
+
+        for (Integer friendId : friendIdSet) {
+            Timeline outbox = outboxes.getIfPresent(friendId);
+            if (outbox != null) {
+                events.addAll(outbox.getPage(beforeEventId, size, event -> true));
+            }
+        }
+
+        events.sort(Comparator.comparingLong(FeedEvent::getEventId).reversed());
+        return events.size() > size ? new ArrayList<>(events.subList(0, size)) : events;
+    }
+
+    private void publish(int authorId, FeedEventType eventType, int entityId) {
+        FeedEvent event = new FeedEvent(lastEventId.incrementAndGet()
+                , System.currentTimeMillis()
+                , authorId
+                , eventType
+                , entityId);
+
+        List<Integer> followerIds = userStorage.getFollowerIds(authorId);
+        if (followerIds.size() > celebrityThreshold) {
+            outboxes.get(authorId, id -> new Timeline(timelineSize)).add(event);
+        } else {
+            for (Integer followerId : followerIds) {
+                inboxes.get(followerId, id -> new Timeline(timelineSize)).add(event);
+            }
+        }
+    }
+
+    /**
+     * ограниченная по размеру лента событий, упорядоченная по id события.
+     * События разных потоков могут добавляться не в порядке id, поэтому лента хранится упорядоченной картой
+     */
+    private static class Timeline {
+        private final int capacity;
+        private final TreeMap<Long, FeedEvent> events = new TreeMap<>();
+
+        Timeline(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void add(FeedEvent event) {
+            events.put(event.getEventId(), event);
+            if (events.size() > capacity) {
+                events.pollFirstEntry();
+            }
+        }
+
+        /**
+         * события с id меньше beforeEventId, от новых к старым
+         *
+         * @param beforeEventId граница страницы
+         * @param size          количество событий
+         * @param filter        условие, которому должны соответствовать события страницы
+         * @return до size событий, соответствующих условию
+         */
+        synchronized List<FeedEvent> getPage(long beforeEventId, int size, Predicate<FeedEvent> filter) {
+            List<FeedEvent> page = new ArrayList<>();
+            for (FeedEvent event : events.headMap(beforeEventId, false).descendingMap().values()) {
+                if (page.size() == size) {
+                    break;
+                }
+                if (filter.test(event)) {
+                    page.add(event);
+                }
+            }
+            return page;
+        }
+    }
+}
@@ -1,26 +1,56 @@
 package ru.yandex.practicum.filmorate.service;
 
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.models.CachedResult;
 import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.FilmField;
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validators.IdListValidator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PopularFilmsCache popularFilmsCache;
+
+    /**
+     * объединение параллельных одинаковых запросов фильма по id, ключ - id и набор полей
+     */
+    private final SingleFlight<List<Object>, Film> filmByIdFlight = new SingleFlight<>();
+
+    /**
+     * объединение параллельных одинаковых запросов списка популярных фильмов, ключ - количество и набор полей
+     */
+    private final SingleFlight<List<Object>, List<Film>> popularFilmsFlight = new SingleFlight<>();
 
     @Autowired
-    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage, @Qualifier("userDbStorage") UserStorage userStorage) {
+    public FilmService(@Qualifier("cachingFilmStorage") FilmStorage filmStorage
+            , @Qualifier("cachingUserStorage") UserStorage userStorage
+            , ApplicationEventPublisher eventPublisher
+            , PopularFilmsCache popularFilmsCache) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.eventPublisher = eventPublisher;
+        this.popularFilmsCache = popularFilmsCache;
     }
 
     /**
@@ -42,6 +72,7 @@ public class FilmService {
 
         filmStorage.addLike(film, userId);
         film.getLikedUserIdSet().add(userId);
+        eventPublisher.publishEvent(new FilmLikeEvent(filmId, userId, true));
     }
 
     /**
@@ -63,6 +94,7 @@ public class FilmService {
 
         filmStorage.removeLike(film, userId);
         film.getLikedUserIdSet().remove(userId);
+        eventPublisher.publishEvent(new FilmLikeEvent(filmId, userId, false));
     }
 
     /**
@@ -75,6 +107,35 @@ public class FilmService {
         return filmStorage.getPopularFilms(count);
     }
 
+    /**
+     * вернуть топ N фильмов по количеству лайков, загрузив только указанные поля.
+     * Параллельные запросы с одинаковыми параметрами выполняют одно обращение к хранилищу и получают общий
+     * результат, поэтому возвращаемый список нельзя изменять
+     *
+     * @param count  количество фильмов в списке, если не указано или меньше 1 - то берется 10
+     * @param fields набор загружаемых полей
+     * @return список фильмов с самым большим количеством лайков
+     */
+    public List<Film> getPopularFilms(Integer count, Set<FilmField> fields) {
+        return popularFilmsFlight.execute(Arrays.asList(count, fields), () -> filmStorage.getPopularFilms(count, fields));
+    }
+
+    /**
+     * вернуть топ N фильмов по количеству лайков вместе с возрастом результата.
+     * В режиме stale-while-revalidate результат отдается из PopularFilmsCache и может быть устаревшим,
+     * иначе он вычисляется при запросе и его возраст равен 0
+     *
+     * @param count  количество фильмов в списке, если не указано или меньше 1 - то берется 10
+     * @param fields набор загружаемых полей
+     * @return список фильмов с самым большим количеством лайков и его возраст
+     */
+    public CachedResult<List<Film>> getPopularFilmsWithAge(Integer count, Set<FilmField> fields) {
+        if (popularFilmsCache.isEnabled()) {
+            return popularFilmsCache.get(Arrays.asList(count, fields), () -> getPopularFilms(count, fields));
+        }
+        return new CachedResult<>(getPopularFilms(count, fields), 0);
+    }
+
     /**
      * получить список всех фильмов
      *
@@ -84,6 +145,16 @@ public class FilmService {
         return filmStorage.getAll();
     }
 
+    /**
+     * получить список всех фильмов, загрузив только указанные поля
+     *
+     * @param fields набор загружаемых полей
+     * @return список объектов Film
+     */
+    public List<Film> getAll(Set<FilmField> fields) {
+        return filmStorage.getAll(fields);
+    }
+
     /**
      * получить данные фильма по его ID
      *
@@ -94,6 +165,122 @@ public class FilmService {
         return filmStorage.getById(filmId);
     }
 
+    /**
+     * получить данные фильма по его ID, загрузив только указанные поля.
+     * Параллельные запросы с одинаковыми параметрами выполняют одно обращение к хранилищу и получают общий
+     * результат, поэтому возвращаемый объект нельзя изменять
+     *
+     * @param filmId ID фильма
+     * @param fields набор загружаемых полей
+     * @return объект типа Film или null если такой ID не найден
+     */
+    public Film getById(int filmId, Set<FilmField> fields) {
+        return filmByIdFlight.execute(List.of(filmId, fields), () -> filmStorage.getById(filmId, fields));
+    }
+
+    /**
+     * получить данные фильмов по списку ID одним обращением к хранилищу
+     *
+     * @param idList список ID фильмов
+     * @return список объектов типа Film в порядке списка, ненайденные ID пропускаются
+     * @throws ParameterValidationException если в списке больше IdListValidator.MAX_ID_LIST_SIZE элементов
+     *                                      или есть пустые элементы
+     */
+    public List<Film> getByIdList(List<Integer> idList) throws ParameterValidationException {
+        IdListValidator.validate(idList);
+        return filmStorage.getByIdList(idList);
+    }
+
+    /**
+     * получить страницу фильмов, которые лайкнул пользователь, в порядке id
+     *
+     * @param userId id пользователя
+     * @param from   количество пропускаемых фильмов
+     * @param size   размер страницы
+     * @return список объектов типа Film
+     * @throws UserNotFoundException        если пользователь не найден
+     * @throws ParameterValidationException если параметры страницы некорректны
+     */
+    public List<Film> getLikedFilms(int userId, int from, int size) throws UserNotFoundException, ParameterValidationException {
+        checkPage(from, size);
+        checkUserExists(userId);
+
+        return filmStorage.getByIdList(getPage(filmStorage.getLikedFilmIds(userId), from, size));
+    }
+
+    /**
+     * получить страницу фильмов, которые лайкнули оба пользователя, в порядке id.
+     * Общие фильмы находятся пересечением множеств лайков из индекса, без запроса к film_likes
+     *
+     * @param userId  id пользователя 1
+     * @param otherId id пользователя 2
+     * @param from    количество пропускаемых фильмов
+     * @param size    размер страницы
+     * @return список объектов типа Film
+     * @throws UserNotFoundException        если пользователь не найден
+     * @throws ParameterValidationException если параметры страницы некорректны
+     */
+    public List<Film> getCommonLikedFilms(int userId, int otherId, int from, int size)
+            throws UserNotFoundException, ParameterValidationException {
+        checkPage(from, size);
+        checkUserExists(userId);
+        checkUserExists(otherId);
+
+        RoaringBitmap commonFilmIds = RoaringBitmap.and(filmStorage.getLikedFilmIds(userId)
+                , filmStorage.getLikedFilmIds(otherId));
+        return filmStorage.getByIdList(getPage(commonFilmIds, from, size));
+    }
+
+    /**
+     * проверка параметров страницы
+     *
+     * @param from количество пропускаемых элементов
+     * @param size размер страницы
+     * @throws ParameterValidationException если from меньше 0 или size вне диапазона 1..IdListValidator.MAX_ID_LIST_SIZE
+     */
+    private void checkPage(int from, int size) throws ParameterValidationException {
+        if (from < 0) {
+            throw new ParameterValidationException("Параметр from не может быть отрицательным");
+        }
+        if (size < 1 || size > IdListValidator.MAX_ID_LIST_SIZE) {
+            throw new ParameterValidationException("Параметр size должен быть от 1 до " + IdListValidator.MAX_ID_LIST_SIZE);
+        }
+    }
+
+    /**
+     * проверка существования пользователя
+     *
+     * @param userId id пользователя
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    private void checkUserExists(int userId) throws UserNotFoundException {
+        if (userStorage.getById(userId, EnumSet.of(UserField.ID)) == null) {
+            throw new UserNotFoundException("Пользователь с id " + userId + " не найден");
+        }
+    }
+
+    /**
+     * выбрать из множества id страницу в порядке возрастания
+     *
+     * @param ids  множество id
+     * @param from количество пропускаемых id
+     * @param size размер страницы
+     * @return список id
+     */
+    private static List<Integer> getPage(RoaringBitmap ids, int from, int size) {
+        List<Integer> page = new ArrayList<>();
+        if (from >= ids.getLongCardinality()) {
+            return page;
+        }
+
+        PeekableIntIterator iterator = ids.getIntIterator();
+        iterator.advanceIfNeeded(ids.select(from));
+        while (iterator.hasNext() && page.size() < size) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
     /**
      * создать запись фильма в хранилище, присвоить уникальный id
      *
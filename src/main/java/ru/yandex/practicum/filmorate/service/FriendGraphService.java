@@ -0,0 +1,328 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FriendshipEvent;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Поиск цепочек дружбы по снимку графа дружбы (FriendGraph).
+ * Снимок строится при первом обращении и перестраивается, если после изменения списков друзей прошло
+ * больше filmorate.graph.max-staleness-ms; пока один поток перестраивает снимок, остальные используют прежний.
+ * Кратчайшая цепочка ищется двунаправленным поиском в ширину: от первого пользователя по спискам друзей,
+ * от второго - по обратным ребрам, на каждом шаге расширяется меньший фронт.
+ * Поиск ограничен длиной цепочки (filmorate.graph.path.max-depth) и количеством посещенных
+ * пользователей (filmorate.graph.path.visited-budget), бюджет проверяется при посещении каждой вершины
+ */
+@Service
+@Slf4j
+public class FriendGraphService {
+    /**
+     * результат расширения фронта: достигнут предел количества посещенных вершин
+     */
+    private static final int BUDGET_EXHAUSTED = -2;
+
+    private final UserStorage userStorage;
+    private final long maxStalenessMillis;
+    private final int maxDepth;
+    private final int visitedBudget;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile FriendGraph graph;
+    private volatile long graphBuiltAt;
+    private volatile boolean dirty = true;
+
+    @Autowired
+    public FriendGraphService(@Qualifier("cachingUserStorage") UserStorage userStorage
+            , EntityCaches caches
+            , @Value("${filmorate.graph.max-staleness-ms:10000}") long maxStalenessMillis
+            , @Value("${filmorate.graph.path.max-depth:6}") int maxDepth
+            , @Value("${filmorate.graph.path.visited-budget:100000}") int visitedBudget) {
+        this.userStorage = userStorage;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.maxDepth = maxDepth;
+        this.visitedBudget = visitedBudget;
+        caches.addInvalidationListener(this::invalidate);
+    }
+
+    /**
+     * изменение списка друзей помечает снимок графа как устаревший
+     *
+     * @param event событие изменения списка друзей
+     */
+    @EventListener
+    public void onFriendship(FriendshipEvent event) {
+        dirty = true;
+    }
+
+    /**
+     * удалить снимок графа, следующий запрос построит его заново
+     */
+    public void invalidate() {
+        rebuildLock.lock();
+        try {
+            graph = null;
+            dirty = true;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * вернуть текущий снимок графа дружбы, при необходимости перестроив его
+     *
+     * @return граф дружбы
+     */
+    public FriendGraph getGraph() {
+        FriendGraph current = graph;
+        boolean stale = dirty && System.currentTimeMillis() - graphBuiltAt >= maxStalenessMillis;
+        if (current != null && !stale) {
+            return current;
+        }
+
+        //снимок есть, но устарел, и его уже перестраивает другой поток
+        if (current != null && !rebuildLock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            rebuildLock.lock();
+        }
+
+        try {
+            if (graph == null || (dirty && System.currentTimeMillis() - graphBuiltAt >= maxStalenessMillis)) {
+                dirty = false;
+                long start = System.currentTimeMillis();
+                graph = userStorage.getFriendGraph();
+                graphBuiltAt = System.currentTimeMillis();
+                log.debug("Граф дружбы построен за {} мс: {} вершин, {} ребер"
+                        , graphBuiltAt - start, graph.getVertexCount(), graph.getEdgeCount());
+            }
+            return graph;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * найти кратчайшую цепочку друзей от одного пользователя до другого
+     *
+     * @param userId  id первого пользователя
+     * @param otherId id второго пользователя
+     * @return список пользователей цепочки, начиная с первого и заканчивая вторым;
+     * пустой список, если цепочка не найдена в пределах ограничений поиска
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    public List<User> getPath(int userId, int otherId) throws UserNotFoundException {
+        checkUserExists(userId);
+        checkUserExists(otherId);
+
+        List<Integer> path = findPath(getGraph(), userId, otherId, maxDepth, visitedBudget);
+        return userStorage.getByIdList(path);
+    }
+
+    /**
+     * двунаправленный поиск в ширину
+     *
+     * @param graph         граф дружбы
+     * @param source        начальная вершина
+     * @param target        конечная вершина
+     * @param maxDepth      максимальная длина цепочки в ребрах
+     * @param visitedBudget максимальное количество посещенных вершин
+     * @return вершины кратчайшей цепочки от source до target, пустой список если цепочка не найдена
+     */
+    static List<Integer> findPath(FriendGraph graph, int source, int target, int maxDepth, int visitedBudget) {
+        if (source == target) {
+            return List.of(source);
+        }
+        if (!graph.contains(source) || !graph.contains(target)) {
+            return List.of();
+        }
+
+        SearchSide forward = new SearchSide(source, graph.getOutTargets());
+        SearchSide backward = new SearchSide(target, graph.getInSources());
+
+        while (forward.frontierLength > 0 && backward.frontierLength > 0
+                && forward.depth + backward.depth < maxDepth) {
+            int meeting;
+            if (forward.frontierLength <= backward.frontierLength) {
+                meeting = forward.expand(backward, graph, true, visitedBudget);
+            } else {
+                meeting = backward.expand(forward, graph, false, visitedBudget);
+            }
+
+            if (meeting == BUDGET_EXHAUSTED) {
+                return List.of();
+            }
+            if (meeting >= 0) {
+                LinkedList<Integer> path = new LinkedList<>();
+                for (int v = meeting; v != source; v = forward.parentOf(v)) {
+                    path.addFirst(v);
+                }
+                path.addFirst(source);
+                for (int v = meeting; v != target; ) {
+                    v = backward.parentOf(v);
+                    path.addLast(v);
+                }
+                return path;
+            }
+        }
+        return List.of();
+    }
+
+    private void checkUserExists(int userId) throws UserNotFoundException {
+        if (userStorage.getById(userId, EnumSet.of(UserField.ID)) == null) {
+            throw new UserNotFoundException("Пользователь с id " + userId + " не найден");
+        }
+    }
+
+    /**
+     * состояние поиска с одной стороны: посещенные вершины с их родителями и глубиной и текущий фронт.
+     * Посещенные вершины хранятся в хеш-таблице с открытой адресацией на массивах int, поэтому поиск
+     * не создает объектов на каждую вершину, а размер таблицы зависит от количества посещенных вершин,
+     * а не от размера графа
+     */
+    private static class SearchSide {
+        private static final int FREE = -1;
+
+        private final int[] adjacency;
+        // ключи - посещенные вершины, FREE - свободная ячейка; родители и глубины - в ячейках с тем же индексом
+        private int[] vertices;
+        private int[] parents;
+        private int[] depths;
+        private int visitedCount = 0;
+        private int[] frontier;
+        private int frontierLength;
+        private int depth = 0;
+
+        SearchSide(int start, int[] adjacency) {
+            this.adjacency = adjacency;
+            allocate(16);
+            visit(start, start, 0);
+            this.frontier = new int[]{start};
+            this.frontierLength = 1;
+        }
+
+        /**
+         * родитель посещенной вершины
+         */
+        int parentOf(int v) {
+            return parents[slot(v)];
+        }
+
+        /**
+         * глубина вершины, -1 - вершина не посещена
+         */
+        int depthOf(int v) {
+            int slot = slot(v);
+            return vertices[slot] == v ? depths[slot] : -1;
+        }
+
+        /**
+         * расширить фронт на один уровень
+         *
+         * @param other         поиск с другой стороны
+         * @param graph         граф
+         * @param outward       true - по исходящим ребрам, false - по входящим
+         * @param visitedBudget максимальное количество посещенных вершин обеими сторонами поиска
+         * @return вершина встречи с поиском с другой стороны, дающая самую короткую цепочку; -1 - встречи нет;
+         * BUDGET_EXHAUSTED - достигнут предел количества посещенных вершин
+         */
+        int expand(SearchSide other, FriendGraph graph, boolean outward, int visitedBudget) {
+            int[] next = new int[Math.max(16, frontierLength * 2)];
+            int nextLength = 0;
+            int meeting = -1;
+            int meetingDepth = Integer.MAX_VALUE;
+
+            for (int i = 0; i < frontierLength; i++) {
+                int u = frontier[i];
+                int start = outward ? graph.getOutStart(u) : graph.getInStart(u);
+                int end = outward ? graph.getOutEnd(u) : graph.getInEnd(u);
+                for (int e = start; e < end; e++) {
+                    int v = adjacency[e];
+                    int slot = slot(v);
+                    if (vertices[slot] == v) {
+                        continue;
+                    }
+                    if (visitedCount + other.visitedCount >= visitedBudget) {
+                        return BUDGET_EXHAUSTED;
+                    }
+                    visit(v, u, depth + 1);
+
+                    int otherDepth = other.depthOf(v);
+                    if (otherDepth >= 0 && otherDepth < meetingDepth) {
+                        meeting = v;
+                        meetingDepth = otherDepth;
+                    }
+
+                    if (nextLength == next.length) {
+                        next = Arrays.copyOf(next, nextLength * 2);
+                    }
+                    next[nextLength++] = v;
+                }
+            }
+
+            depth++;
+            frontier = next;
+            frontierLength = nextLength;
+            return meeting;
+        }
+
+        private void visit(int v, int parent, int vertexDepth) {
+            if ((visitedCount + 1) * 2 > vertices.length) {
+                grow();
+            }
+            int slot = slot(v);
+            vertices[slot] = v;
+            parents[slot] = parent;
+            depths[slot] = vertexDepth;
+            visitedCount++;
+        }
+
+        /**
+         * ячейка вершины или свободная ячейка, в которую вершина будет записана
+         */
+        private int slot(int v) {
+            int mask = vertices.length - 1;
+            int hash = v * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (vertices[slot] != FREE && vertices[slot] != v) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldVertices = vertices;
+            int[] oldParents = parents;
+            int[] oldDepths = depths;
+            allocate(oldVertices.length * 2);
+            for (int i = 0; i < oldVertices.length; i++) {
+                if (oldVertices[i] != FREE) {
+                    int slot = slot(oldVertices[i]);
+                    vertices[slot] = oldVertices[i];
+                    parents[slot] = oldParents[i];
+                    depths[slot] = oldDepths[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            vertices = new int[capacity];
+            Arrays.fill(vertices, FREE);
+            parents = new int[capacity];
+            depths = new int[capacity];
+        }
+    }
+}
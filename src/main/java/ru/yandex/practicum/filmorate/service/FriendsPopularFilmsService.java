@@ -0,0 +1,305 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.events.FriendshipEvent;
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validators.IdListValidator;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Рейтинг фильмов по количеству лайков от друзей пользователя.
+ * Список друзей берется из объекта пользователя, лайки друзей - из индекса лайков (множества id фильмов),
+ * недостающие в индексе множества загружаются одним запросом. Лайки подсчитываются в массиве по id фильма,
+ * для пользователей с большим количеством друзей - параллельно, лучшие фильмы отбираются кучей размера count.
+ * Результат хранится filmorate.friends-popular.ttl-ms и удаляется раньше, если лайк поставил или убрал
+ * кто-то из друзей или изменился список друзей.
+ * Рейтинги, в расчете которых участвовал друг, находятся по обратному индексу id друга -> рейтинги, рейтинги
+ * пользователя - по индексу id пользователя -> рейтинги, поэтому лайк и изменение списка друзей удаляют только
+ * затронутые рейтинги без перебора кэша. Лайк, поставленный во время расчета рейтинга, обнаруживается
+ * по отметке времени лайка друга: такой рейтинг отдается вызвавшему расчет запросу, но не сохраняется
+ */
+@Service
+public class FriendsPopularFilmsService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final int parallelThreshold;
+
+    /**
+     * рассчитанные рейтинги, ключ - id пользователя и размер списка
+     */
+    private final Cache<List<Integer>, Ranking> rankings;
+
+    /**
+     * рассчитанные рейтинги по id друга, лайки которого в них учтены
+     */
+    private final Map<Integer, Set<Ranking>> rankingsByFriend = new ConcurrentHashMap<>();
+
+    /**
+     * рассчитанные рейтинги по id пользователя, для которого они рассчитаны
+     */
+    private final Map<Integer, Set<Ranking>> rankingsByOwner = new ConcurrentHashMap<>();
+
+    /**
+     * счетчик событий лайков и отметки последних лайков пользователей, ключ - id пользователя.
+     * Отметка хранится столько же, сколько рейтинг, и нужна только для проверки рейтингов, рассчитанных
+     * одновременно с лайком
+     */
+    private final AtomicLong likeClock = new AtomicLong();
+    private final Cache<Integer, Long> lastLikes;
+
+    @Autowired
+    public FriendsPopularFilmsService(@Qualifier("cachingFilmStorage") FilmStorage filmStorage
+            , @Qualifier("cachingUserStorage") UserStorage userStorage
+            , EntityCaches caches
+            , @Value("${filmorate.friends-popular.ttl-ms:10000}") long ttlMillis
+            , @Value("${filmorate.friends-popular.max-entries:10000}") long maxEntries
+            , @Value("${filmorate.friends-popular.parallel-threshold:1000}") int parallelThreshold) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.parallelThreshold = parallelThreshold;
+        this.rankings = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .maximumSize(maxEntries)
+                .recordStats()
+                .removalListener((List<Integer> key, Ranking ranking, RemovalCause cause) -> unregister(ranking))
+                .build();
+        this.lastLikes = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .build();
+        caches.register("friendsPopularFilms", rankings);
+    }
+
+    /**
+     * вернуть топ N фильмов по количеству лайков от друзей пользователя
+     *
+     * @param userId id пользователя
+     * @param count  количество фильмов в списке, если не указано или меньше 1 - то берется 10,
+     *               не больше IdListValidator.MAX_ID_LIST_SIZE
+     * @return список фильмов, лайкнутых друзьями, по убыванию количества лайков друзей
+     * @throws UserNotFoundException        если пользователь не найден
+     * @throws ParameterValidationException если count больше IdListValidator.MAX_ID_LIST_SIZE
+     */
+    public List<Film> getPopularFilms(int userId, Integer count) throws UserNotFoundException
+            , ParameterValidationException {
+        if (count != null && count > IdListValidator.MAX_ID_LIST_SIZE) {
+            throw new ParameterValidationException("Параметр count не может быть больше "
+                    + IdListValidator.MAX_ID_LIST_SIZE);
+        }
+        int limit = count == null || count < 1 ? 10 : count;
+        List<Integer> key = List.of(userId, limit);
+        Ranking ranking = rankings.get(key, k -> rank(k, userId, limit));
+        if (!ranking.verified) {
+            verify(ranking);
+        }
+        return filmStorage.getByIdList(ranking.filmIds);
+    }
+
+    /**
+     * лайк друга делает недействительными рейтинги всех пользователей, у которых он в друзьях.
+     * Отметка лайка записывается до удаления рейтингов, поэтому рейтинг, который рассчитывается одновременно
+     * и еще не попал в индекс, будет отброшен проверкой verify
+     *
+     * @param event событие изменения лайка
+     */
+    @EventListener
+    public void onFilmLike(FilmLikeEvent event) {
+        lastLikes.put(event.getUserId(), likeClock.incrementAndGet());
+        invalidate(rankingsByFriend.remove(event.getUserId()));
+    }
+
+    /**
+     * изменение списка друзей делает недействительными рейтинги пользователя
+     *
+     * @param event событие изменения списка друзей
+     */
+    @EventListener
+    public void onFriendship(FriendshipEvent event) {
+        invalidate(rankingsByOwner.remove(event.getUserId()));
+    }
+
+    private Ranking rank(List<Integer> key, int userId, int limit) {
+        long startedAt = likeClock.get();
+        User user = userStorage.getById(userId);
+        if (user == null) {
+            throw new UserNotFoundException("Пользователь с id " + userId + " не найден");
+        }
+
+        RoaringBitmap friendIds = new RoaringBitmap();
+        user.getFriendIdSet().forEach(friendIds::add);
+        Collection<RoaringBitmap> friendLikes = filmStorage.getLikedFilmIds(new ArrayList<>(user.getFriendIdSet())).values();
+
+        Ranking ranking = new Ranking(key, friendIds, getTopFilmIds(countLikes(friendLikes), limit), startedAt);
+        friendIds.forEach((IntConsumer) friendId -> rankingsByFriend
+                .computeIfAbsent(friendId, id -> ConcurrentHashMap.newKeySet())
+                .add(ranking));
+        rankingsByOwner.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(ranking);
+        return ranking;
+    }
+
+    /**
+     * проверить только что сохраненный рейтинг: если кто-то из друзей поставил или убрал лайк после начала
+     * расчета, рейтинг удаляется из кэша
+     *
+     * @param ranking рейтинг
+     */
+    private void verify(Ranking ranking) {
+        ranking.verified = true;
+        boolean likedDuringRank = false;
+        //перебирается меньшее из множеств: друзья или недавние лайки
+        if (ranking.friendIds.getLongCardinality() <= lastLikes.estimatedSize()) {
+            PeekableIntIterator friendIds = ranking.friendIds.getIntIterator();
+            while (friendIds.hasNext() && !likedDuringRank) {
+                Long likedAt = lastLikes.getIfPresent(friendIds.next());
+                likedDuringRank = likedAt != null && likedAt > ranking.startedAt;
+            }
+        } else {
+            for (Map.Entry<Integer, Long> lastLike : lastLikes.asMap().entrySet()) {
+                if (lastLike.getValue() > ranking.startedAt && ranking.friendIds.contains(lastLike.getKey())) {
+                    likedDuringRank = true;
+                    break;
+                }
+            }
+        }
+        if (likedDuringRank) {
+            rankings.asMap().remove(ranking.key, ranking);
+        }
+    }
+
+    /**
+     * удалить рейтинги из кэша, рейтинги удаляются из индексов слушателем удаления кэша
+     *
+     * @param affected рейтинги из индекса, может быть null
+     */
+    private void invalidate(Set<Ranking> affected) {
+        if (affected != null) {
+            for (Ranking ranking : affected) {
+                rankings.asMap().remove(ranking.key, ranking);
+            }
+        }
+    }
+
+    /**
+     * удалить рейтинг из индексов по друзьям и по пользователю
+     *
+     * @param ranking удаленный из кэша рейтинг
+     */
+    private void unregister(Ranking ranking) {
+        if (ranking == null) {
+            return;
+        }
+        ranking.friendIds.forEach((IntConsumer) friendId -> removeFromIndex(rankingsByFriend, friendId, ranking));
+        removeFromIndex(rankingsByOwner, ranking.key.get(0), ranking);
+    }
+
+    private static void removeFromIndex(Map<Integer, Set<Ranking>> index, int userId, Ranking ranking) {
+        index.computeIfPresent(userId, (id, userRankings) -> {
+            userRankings.remove(ranking);
+            return userRankings.isEmpty() ? null : userRankings;
+        });
+    }
+
+    /**
+     * подсчитать лайки друзей по фильмам
+     *
+     * @param friendLikes множества id лайкнутых фильмов по друзьям
+     * @return массив, индекс - id фильма, значение - количество лайков
+     */
+    private int[] countLikes(Collection<RoaringBitmap> friendLikes) {
+        int maxFilmId = 0;
+        for (RoaringBitmap filmIds : friendLikes) {
+            if (!filmIds.isEmpty()) {
+                maxFilmId = Math.max(maxFilmId, filmIds.last());
+            }
+        }
+        int size = maxFilmId + 1;
+
+        Stream<RoaringBitmap> stream = friendLikes.size() >= parallelThreshold
+                ? friendLikes.parallelStream()
+                : friendLikes.stream();
+        return stream.collect(() -> new int[size]
+                , (counts, filmIds) -> filmIds.forEach((IntConsumer) filmId -> counts[filmId]++)
+                , (counts, other) -> {
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] += other[i];
+                    }
+                });
+    }
+
+    /**
+     * отобрать id фильмов с наибольшим количеством лайков, при равенстве - с меньшим id
+     *
+     * @param counts количество лайков по id фильма
+     * @param limit  количество фильмов
+     * @return список id фильмов по убыванию количества лайков
+     */
+    private static List<Integer> getTopFilmIds(int[] counts, int limit) {
+        //в вершине кучи - худший из отобранных фильмов
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.<Integer>comparingInt(filmId -> counts[filmId])
+                .thenComparing(Comparator.reverseOrder()));
+        for (int filmId = 1; filmId < counts.length; filmId++) {
+            if (counts[filmId] == 0) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(filmId);
+            } else if (counts[filmId] > counts[heap.peek()]) {
+                heap.poll();
+                heap.add(filmId);
+            }
+        }
+
+        LinkedList<Integer> filmIds = new LinkedList<>();
+        while (!heap.isEmpty()) {
+            filmIds.addFirst(heap.poll());
+        }
+        return filmIds;
+    }
+
+    /**
+     * рассчитанный рейтинг и друзья, по лайкам которых он рассчитан
+     */
+    private static class Ranking {
+        private final List<Integer> key;
+        private final RoaringBitmap friendIds;
+        private final List<Integer> filmIds;
+
+        /**
+         * значение счетчика лайков перед началом расчета
+         */
+        private final long startedAt;
+
+        /**
+         * признак того, что рейтинг проверен на лайки друзей во время расчета
+         */
+        private volatile boolean verified = false;
+
+        Ranking(List<Integer> key, RoaringBitmap friendIds, List<Integer> filmIds, long startedAt) {
+            this.key = key;
+            this.friendIds = friendIds;
+            this.filmIds = filmIds;
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
+import ru.yandex.practicum.filmorate.models.InfluenceJobResult;
+import ru.yandex.practicum.filmorate.models.UserField;
+import ru.yandex.practicum.filmorate.models.UserInfluence;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PreDestroy;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Оценка влияния пользователей алгоритмом PageRank по направленному графу дружбы:
+ * ребро user_id -> friend_id передает часть оценки пользователя его другу.
+ * Итерации выполняются в ForkJoinPool параллельно по вершинам: новая оценка вершины собирается
+ * по входящим ребрам, поэтому потоки не пишут в общие ячейки. Расчет останавливается, когда сумма
+ * изменений оценок становится меньше filmorate.influence.epsilon или исчерпано filmorate.influence.max-iterations.
+ * Оценки сохраняются в таблицу user_influence, умноженными на количество существующих пользователей
+ * (среднее по ним равно 1).
+ * Расчет запускается по расписанию filmorate.influence.cron ("-" - отключено) или через AdminController
+ */
+@Service
+@Slf4j
+public class InfluenceService {
+    private final UserStorage userStorage;
+    private final double damping;
+    private final double epsilon;
+    private final int maxIterations;
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public InfluenceService(@Qualifier("cachingUserStorage") UserStorage userStorage
+            , @Value("${filmorate.influence.damping:0.85}") double damping
+            , @Value("${filmorate.influence.epsilon:1e-6}") double epsilon
+            , @Value("${filmorate.influence.max-iterations:100}") int maxIterations
+            , @Value("${filmorate.influence.parallelism:0}") int parallelism) {
+        this.userStorage = userStorage;
+        this.damping = damping;
+        this.epsilon = epsilon;
+        this.maxIterations = maxIterations;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * вернуть оценку влияния пользователя
+     *
+     * @param userId id пользователя
+     * @return оценка влияния, до первого расчета - среднее значение 1
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    public UserInfluence getInfluence(int userId) throws UserNotFoundException {
+        if (userStorage.getById(userId, EnumSet.of(UserField.ID)) == null) {
+            throw new UserNotFoundException("Пользователь с id " + userId + " не найден");
+        }
+
+        Double score = userStorage.getInfluenceScore(userId);
+        return new UserInfluence(userId, score == null ? 1.0 : score, score != null);
+    }
+
+    /**
+     * запуск расчета по расписанию
+     */
+    @Scheduled(cron = "${filmorate.influence.cron:-}")
+    public void scheduledRun() {
+        InfluenceJobResult result = run();
+        log.info("Оценки влияния пересчитаны: {}", result);
+    }
+
+    /**
+     * рассчитать и сохранить оценки влияния всех пользователей.
+     * Одновременно выполняется только один расчет
+     *
+     * @return результат расчета
+     */
+    public synchronized InfluenceJobResult run() {
+        long start = System.currentTimeMillis();
+        FriendGraph graph = userStorage.getFriendGraph();
+
+        PageRank pageRank = computePageRank(graph, damping, epsilon, maxIterations, pool);
+        userStorage.saveInfluenceScores(pageRank.scores);
+
+        return new InfluenceJobResult(graph.getUserCount()
+                , graph.getEdgeCount()
+                , pageRank.iterations
+                , pageRank.delta
+                , pageRank.delta < epsilon
+                , System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Расчет PageRank. Вершины графа - id пользователей от 1, вершина 0 и вершины id без пользователя
+     * не участвуют в расчете и получают оценку 0.
+     * Оценка пользователей без друзей распределяется поровну между всеми пользователями
+     *
+     * @param graph         граф дружбы
+     * @param damping       коэффициент затухания
+     * @param epsilon       точность: расчет останавливается, когда сумма изменений оценок меньше нее
+     * @param maxIterations максимальное количество итераций
+     * @param pool          пул для параллельного расчета
+     * @return оценки, умноженные на количество пользователей, и сведения о сходимости
+     */
+    static PageRank computePageRank(FriendGraph graph, double damping, double epsilon, int maxIterations
+            , ForkJoinPool pool) {
+        int vertexCount = graph.getVertexCount();
+        int userCount = graph.getUserCount();
+        double[] rank = new double[vertexCount];
+        double[] next = new double[vertexCount];
+        double[] contribution = new double[vertexCount];
+        if (userCount <= 0) {
+            return new PageRank(rank, 0, 0);
+        }
+
+        boolean[] isUser = new boolean[vertexCount];
+        for (int v = 1; v < vertexCount; v++) {
+            isUser[v] = graph.isUser(v);
+            rank[v] = isUser[v] ? 1.0 / userCount : 0;
+        }
+
+        int[] inSources = graph.getInSources();
+        int iterations = 0;
+        double delta = Double.MAX_VALUE;
+        while (iterations < maxIterations && delta >= epsilon) {
+            double[] current = rank;
+            double[] updated = next;
+            double dangling = pool.submit(() -> IntStream.range(1, vertexCount).parallel()
+                    .filter(u -> isUser[u])
+                    .mapToDouble(u -> {
+                        int outDegree = graph.getOutDegree(u);
+                        contribution[u] = outDegree == 0 ? 0 : current[u] / outDegree;
+                        return outDegree == 0 ? current[u] : 0;
+                    })
+                    .sum()).join();
+
+            double base = (1 - damping) / userCount + damping * dangling / userCount;
+            delta = pool.submit(() -> IntStream.range(1, vertexCount).parallel()
+                    .filter(v -> isUser[v])
+                    .mapToDouble(v -> {
+                        double sum = 0;
+                        for (int e = graph.getInStart(v); e < graph.getInEnd(v); e++) {
+                            sum += contribution[inSources[e]];
+                        }
+                        updated[v] = base + damping * sum;
+                        return Math.abs(updated[v] - current[v]);
+                    })
+                    .sum()).join();
+
+            rank = updated;
+            next = current;
+            iterations++;
+        }
+
+        for (int v = 1; v < vertexCount; v++) {
+            rank[v] *= userCount;
+        }
+        return new PageRank(rank, iterations, delta);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * результат расчета PageRank
+     */
+    static class PageRank {
+        // оценки по id пользователя, среднее равно 1
+        final double[] scores;
+        final int iterations;
+        // сумма изменений оценок на последней итерации
+        final double delta;
+
+        PageRank(double[] scores, int iterations, double delta) {
+            this.scores = scores;
+            this.iterations = iterations;
+            this.delta = delta;
+        }
+    }
+}
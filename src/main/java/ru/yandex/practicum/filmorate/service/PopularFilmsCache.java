@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.models.CachedResult;
+import ru.yandex.practicum.filmorate.models.Film;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Режим stale-while-revalidate для списка популярных фильмов.
+ * Если результат для параметров запроса уже вычислялся, он отдается сразу, без ожидания БД.
+ * Когда результат старше filmorate.popular.stale-while-revalidate.ttl-ms или с момента вычисления
+ * менялись лайки, запускается один фоновый пересчет; до его окончания отдается прежний результат.
+ * Без результата (первый запрос с такими параметрами) вызывающий поток ждет вычисления.
+ * Изменения лайков учитываются счетчиком версий: результат хранит версию, прочитанную до начала вычисления,
+ * поэтому лайк во время вычисления оставляет новый результат устаревшим
+ */
+@Component
+@Slf4j
+public class PopularFilmsCache {
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Cache<List<Object>, Entry> entries;
+    private final ExecutorService refreshExecutor;
+
+    /**
+     * версия лайков, увеличивается при каждом изменении лайка
+     */
+    private final AtomicLong likesVersion = new AtomicLong();
+
+    public PopularFilmsCache(@Value("${filmorate.popular.stale-while-revalidate.enabled:false}") boolean enabled
+            , @Value("${filmorate.popular.stale-while-revalidate.ttl-ms:5000}") long ttlMillis
+            , @Value("${filmorate.popular.stale-while-revalidate.max-entries:100}") long maxEntries) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.entries = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "popular-films-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * признак включенного режима, если false - список вычисляется при каждом запросе
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * отдать последний вычисленный результат, при необходимости запустив фоновый пересчет
+     *
+     * @param key    параметры запроса
+     * @param loader функция вычисления списка
+     * @return список фильмов и его возраст
+     */
+    public CachedResult<List<Film>> get(List<Object> key, Supplier<List<Film>> loader) {
+        Entry entry = entries.get(key, k -> load(loader));
+
+        if (entry.isStale() && entry.refreshing.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> refresh(key, entry, loader));
+        }
+
+        return new CachedResult<>(entry.films, entry.getAgeMillis());
+    }
+
+    /**
+     * возраст самого старого из отдаваемых результатов
+     *
+     * @return возраст в миллисекундах, 0 если результатов нет
+     */
+    public long getMaxAgeMillis() {
+        return entries.asMap().values().stream().mapToLong(Entry::getAgeMillis).max().orElse(0);
+    }
+
+    /**
+     * изменение лайков помечает все результаты как устаревшие
+     *
+     * @param event событие изменения лайка
+     */
+    @EventListener
+    public void onFilmLike(FilmLikeEvent event) {
+        likesVersion.incrementAndGet();
+    }
+
+    /**
+     * вычислить результат, версия лайков читается до вычисления
+     */
+    private Entry load(Supplier<List<Film>> loader) {
+        long version = likesVersion.get();
+        return new Entry(loader.get(), version);
+    }
+
+    private void refresh(List<Object> key, Entry entry, Supplier<List<Film>> loader) {
+        try {
+            entries.asMap().replace(key, entry, load(loader));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить список популярных фильмов: {}", e.getMessage());
+            entry.refreshing.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * вычисленный результат
+     */
+    private class Entry {
+        private final List<Film> films;
+        private final long computedAt = System.currentTimeMillis();
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        /**
+         * версия лайков на момент начала вычисления
+         */
+        private final long likesVersion;
+
+        Entry(List<Film> films, long likesVersion) {
+            this.films = films;
+            this.likesVersion = likesVersion;
+        }
+
+        long getAgeMillis() {
+            return System.currentTimeMillis() - computedAt;
+        }
+
+        boolean isStale() {
+            return likesVersion != PopularFilmsCache.this.likesVersion.get() || getAgeMillis() > ttlMillis;
+        }
+    }
+}
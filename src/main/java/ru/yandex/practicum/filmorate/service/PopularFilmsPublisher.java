@@ -0,0 +1,364 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.models.FilmRankDelta;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Общий для всех подписчиков источник изменений списка популярных фильмов (Server-Sent Events).
+ * Лайки только помечают список как изменившийся, пересчет выполняется не чаще одного раза за окно
+ * filmorate.popular.stream.window-ms и только при наличии подписчиков, поэтому нагрузка на БД
+ * не зависит от количества открытых соединений.
+ * Отправка выполняется небольшим общим пулом потоков; пока подписчик не принял предыдущее событие,
+ * новые изменения для него объединяются (по одному последнему изменению на фильм).
+ * Подписчик, отправка которому длится дольше filmorate.popular.stream.send-timeout-ms, отключается,
+ * а пул получает замену зависшего потока на время, пока отправка не завершится, поэтому медленные клиенты
+ * не задерживают рассылку остальным. Размер пула вместе с заменами ограничен
+ * filmorate.popular.stream.max-send-threads: при большем количестве зависших отправок остальные подписчики
+ * ждут, пока запись в соединение не завершится по таймауту записи сервера
+ */
+@Service
+@Slf4j
+public class PopularFilmsPublisher {
+    private static final String EVENT_NAME = "popular";
+
+    private final FilmStorage filmStorage;
+    private final int top;
+    private final long timeout;
+    private final long sendTimeoutNanos;
+    private final int sendThreads;
+    private final int maxSendThreads;
+    private final ThreadPoolExecutor sendExecutor;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * признак того, что лайки менялись после последнего пересчета
+     */
+    private volatile boolean changed = true;
+
+    /**
+     * позиции фильмов при последнем пересчете, ключ - id фильма
+     */
+    private Map<Integer, FilmRankDelta> lastRanks = Map.of();
+
+    @Autowired
+    public PopularFilmsPublisher(@Qualifier("cachingFilmStorage") FilmStorage filmStorage
+            , @Value("${filmorate.popular.stream.top:10}") int top
+            , @Value("${filmorate.popular.stream.timeout-ms:1800000}") long timeout
+            , @Value("${filmorate.popular.stream.send-threads:2}") int sendThreads
+            , @Value("${filmorate.popular.stream.send-timeout-ms:5000}") long sendTimeout
+            , @Value("${filmorate.popular.stream.max-send-threads:8}") int maxSendThreads) {
+        this.filmStorage = filmStorage;
+        this.top = top;
+        this.timeout = timeout;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeout);
+        this.sendThreads = sendThreads;
+        this.maxSendThreads = Math.max(maxSendThreads, sendThreads);
+        this.sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS
+                , new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "popular-films-sse");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * подписать клиента на изменения, первым событием отправляется текущий список целиком.
+     * Список отправляется пулом потоков, как и последующие изменения, поэтому изменения не могут
+     * опередить начальный список
+     *
+     * @return объект SseEmitter для ответа контроллера
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber;
+        synchronized (this) {
+            if (changed) {
+                refreshRanks();
+            }
+            subscriber = new Subscriber(emitter, sortByRank(lastRanks.values()));
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        sendExecutor.execute(subscriber::send);
+        return emitter;
+    }
+
+    /**
+     * создать SseEmitter для нового подписчика
+     */
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeout);
+    }
+
+    /**
+     * количество активных подписчиков
+     *
+     * @return количество подписчиков
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * обработка изменения лайка - пересчет будет выполнен в ближайшем окне
+     *
+     * @param event событие изменения лайка
+     */
+    @EventListener
+    public void onFilmLike(FilmLikeEvent event) {
+        changed = true;
+    }
+
+    /**
+     * периодическая рассылка изменений, если за окно были изменения лайков и есть подписчики
+     */
+    @Scheduled(fixedDelayString = "${filmorate.popular.stream.window-ms:500}")
+    public synchronized void publishChanges() {
+        if (changed && !subscribers.isEmpty()) {
+            refreshRanks();
+        }
+    }
+
+    /**
+     * отключение подписчиков, отправка которым длится дольше допустимого времени: подписчик больше не получает
+     * изменений, SseEmitter завершается с ошибкой потоком отправки после выхода из записи, так как методы
+     * SseEmitter синхронизированы и заняты на время записи в соединение, а прерывание потока запись не отменяет
+     */
+    @Scheduled(fixedDelayString = "${filmorate.popular.stream.window-ms:500}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.markStalled(now)) {
+                log.debug("Подписчик на популярные фильмы не принимает события дольше {} мс, отключен"
+                        , TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    /**
+     * изменить количество потоков отправки: зависший поток заменяется новым на время зависания,
+     * если размер пула не достиг filmorate.popular.stream.max-send-threads
+     *
+     * @param delta +1 - отправка зависла, -1 - зависшая отправка, получившая замену, завершилась
+     * @return true - размер пула изменен
+     */
+    private boolean resizeSendExecutor(int delta) {
+        synchronized (sendExecutor) {
+            int size = sendExecutor.getCorePoolSize() + delta;
+            if (size < sendThreads || size > maxSendThreads) {
+                return false;
+            }
+            if (delta > 0) {
+                sendExecutor.setMaximumPoolSize(size);
+                sendExecutor.setCorePoolSize(size);
+            } else {
+                sendExecutor.setCorePoolSize(size);
+                sendExecutor.setMaximumPoolSize(size);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * пересчитать список популярных фильмов и разослать подписчикам отличия от предыдущего списка
+     */
+    private void refreshRanks() {
+        changed = false;
+
+        // для позиций нужны только id и количество лайков, фильмы целиком не загружаются
+        Map<Integer, FilmRankDelta> newRanks = new HashMap<>();
+        int rank = 0;
+        for (Map.Entry<Integer, Integer> likes : filmStorage.getPopularFilmLikes(top).entrySet()) {
+            newRanks.put(likes.getKey(), new FilmRankDelta(likes.getKey(), ++rank, likes.getValue()));
+        }
+
+        List<FilmRankDelta> deltas = new ArrayList<>();
+        for (FilmRankDelta newRank : newRanks.values()) {
+            if (!newRank.equals(lastRanks.get(newRank.getFilmId()))) {
+                deltas.add(newRank);
+            }
+        }
+        for (FilmRankDelta oldRank : lastRanks.values()) {
+            if (!newRanks.containsKey(oldRank.getFilmId())) {
+                deltas.add(new FilmRankDelta(oldRank.getFilmId(), null, oldRank.getLikes()));
+            }
+        }
+        lastRanks = newRanks;
+
+        if (!deltas.isEmpty()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(deltas);
+            }
+        }
+    }
+
+    /**
+     * отсортировать изменения по позиции, выбывшие фильмы - в конце
+     *
+     * @param deltas изменения позиций
+     * @return отсортированный список
+     */
+    private static List<FilmRankDelta> sortByRank(Collection<FilmRankDelta> deltas) {
+        List<FilmRankDelta> sorted = new ArrayList<>(deltas);
+        sorted.sort(Comparator.comparing(FilmRankDelta::getRank, Comparator.nullsLast(Comparator.naturalOrder())));
+        return sorted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    /**
+     * подписчик с буфером неотправленных изменений
+     */
+    private class Subscriber {
+        private final SseEmitter emitter;
+
+        /**
+         * начальный список, еще не отправленный подписчику
+         */
+        private List<FilmRankDelta> snapshot;
+
+        /**
+         * неотправленные изменения, ключ - id фильма, более новое изменение заменяет старое
+         */
+        private final Map<Integer, FilmRankDelta> pending = new HashMap<>();
+
+        /**
+         * признак того, что отправка уже поставлена в очередь пула, начальный список отправляется сразу
+         */
+        private boolean sending = true;
+
+        /**
+         * признак выполнения записи в соединение и время ее начала (System.nanoTime)
+         */
+        private boolean inWrite = false;
+        private long sendStartNanos;
+
+        /**
+         * признак того, что отправка зависла и подписчик отключен
+         */
+        private boolean stalled = false;
+
+        /**
+         * признак того, что пул получил замену потока зависшей отправки
+         */
+        private boolean replaced = false;
+
+        Subscriber(SseEmitter emitter, List<FilmRankDelta> snapshot) {
+            this.emitter = emitter;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * пометить подписчика как зависшего и добавить в пул замену потока отправки, если текущая отправка
+         * длится дольше допустимого времени. Выполняется под блокировкой подписчика, чтобы поток отправки
+         * вернул замену, только если она была добавлена
+         *
+         * @param now текущее время, System.nanoTime
+         * @return true - отправка зависла
+         */
+        synchronized boolean markStalled(long now) {
+            if (stalled || !inWrite || now - sendStartNanos < sendTimeoutNanos) {
+                return false;
+            }
+            stalled = true;
+            replaced = resizeSendExecutor(1);
+            return true;
+        }
+
+        void offer(List<FilmRankDelta> deltas) {
+            synchronized (this) {
+                if (stalled) {
+                    return;
+                }
+                for (FilmRankDelta delta : deltas) {
+                    pending.put(delta.getFilmId(), delta);
+                }
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            sendExecutor.execute(this::send);
+        }
+
+        private void send() {
+            List<FilmRankDelta> batch;
+            synchronized (this) {
+                if (snapshot != null) {
+                    batch = snapshot;
+                    snapshot = null;
+                } else {
+                    batch = sortByRank(pending.values());
+                    pending.clear();
+                }
+                inWrite = true;
+                sendStartNanos = System.nanoTime();
+            }
+
+            Exception error = null;
+            try {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(batch, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                error = e;
+            }
+
+            boolean wasStalled;
+            boolean wasReplaced;
+            synchronized (this) {
+                inWrite = false;
+                wasStalled = stalled;
+                wasReplaced = replaced;
+            }
+            if (wasStalled) {
+                if (wasReplaced) {
+                    resizeSendExecutor(-1);
+                }
+                emitter.completeWithError(new TimeoutException("Превышено время отправки события подписчику"));
+                return;
+            }
+            if (error != null) {
+                log.debug("Подписчик на популярные фильмы отключен: {}", error.getMessage());
+                subscribers.remove(this);
+                emitter.completeWithError(error);
+                return;
+            }
+
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    sending = false;
+                    return;
+                }
+            }
+            sendExecutor.execute(this::send);
+        }
+    }
+}
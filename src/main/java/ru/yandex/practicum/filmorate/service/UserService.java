@@ -2,24 +2,30 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.events.FriendshipEvent;
 import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
 import ru.yandex.practicum.filmorate.exceptions.UserNotFoundException;
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validators.IdListValidator;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 
 @Service
 public class UserService {
     private final UserStorage userStorage;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public UserService(@Qualifier("cachingUserStorage") UserStorage userStorage
+            , ApplicationEventPublisher eventPublisher) {
         this.userStorage = userStorage;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -46,6 +52,7 @@ public class UserService {
 
         person.getFriendIdSet().add(friend.getId());
         userStorage.addFriend(person, friend.getId());
+        eventPublisher.publishEvent(new FriendshipEvent(personId, friendId, true));
     }
 
     /**
@@ -68,48 +75,53 @@ public class UserService {
 
         person.getFriendIdSet().remove(friend.getId());
         userStorage.removeFriend(person, friend.getId());
+        eventPublisher.publishEvent(new FriendshipEvent(personId, friendId, false));
     }
 
     /**
-     * вернуть список друзей пользователя
+     * вернуть список друзей пользователя.
+     * Друзья загружаются одним запросом, наличие пользователя проверяется только если друзей не найдено
      *
      * @param userId id пользователя
      * @return список друзей в виде объектов типа User
      */
     public List<User> getUserFriends(int userId) throws UserNotFoundException {
-        User user = userStorage.getById(userId);
-        if (user == null) {
-            throw new UserNotFoundException("Пользователь с id " + userId + " не найден");
+        List<User> friends = userStorage.getFriends(userId);
+        if (friends.isEmpty()) {
+            checkUserExists(userId);
         }
 
-        return userStorage.getByIdList(new ArrayList<Integer>(user.getFriendIdSet()));
+        return friends;
     }
 
     /**
-     * Отдать список общих друзей двух пользователей
+     * Отдать список общих друзей двух пользователей.
+     * Общие друзья загружаются одним запросом, наличие пользователей проверяется только если общих друзей не найдено
      *
      * @param userId1 id пользователя 1
      * @param userId2 id пользователя 2
      * @return список объектов типа User, которые являются общими друзьями заданных пользователей
      */
     public List<User> getMutualFriendsById(int userId1, int userId2) throws UserNotFoundException {
-        User user1 = userStorage.getById(userId1);
-        if (user1 == null) {
-            throw new UserNotFoundException("Пользователь с id " + userId1 + " не найден");
-        }
-
-        User user2 = userStorage.getById(userId2);
-        if (user2 == null) {
-            throw new UserNotFoundException("Пользователь с id " + userId2 + " не найден");
+        List<User> mutualFriends = userStorage.getCommonFriends(userId1, userId2);
+        if (mutualFriends.isEmpty()) {
+            checkUserExists(userId1);
+            checkUserExists(userId2);
         }
 
-        Set<Integer> friendIdList1 = user1.getFriendIdSet();
-        Set<Integer> friendIdList2 = user2.getFriendIdSet();
-
-        Set<Integer> intersection = new HashSet<>(friendIdList1);
-        intersection.retainAll(friendIdList2);
+        return mutualFriends;
+    }
 
-        return userStorage.getByIdList(new ArrayList<Integer>(intersection));
+    /**
+     * проверить наличие пользователя в хранилище, загружается только id
+     *
+     * @param userId id пользователя
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    private void checkUserExists(int userId) throws UserNotFoundException {
+        if (userStorage.getById(userId, EnumSet.of(UserField.ID)) == null) {
+            throw new UserNotFoundException("Пользователь с id " + userId + " не найден");
+        }
     }
 
     /**
@@ -121,6 +133,16 @@ public class UserService {
         return userStorage.getAll();
     }
 
+    /**
+     * получить список всех пользователей, загрузив только указанные поля
+     *
+     * @param fields набор загружаемых полей
+     * @return список объектов User
+     */
+    public List<User> getAll(Set<UserField> fields) {
+        return userStorage.getAll(fields);
+    }
+
     /**
      * получить данные пользователя по его ID
      *
@@ -131,6 +153,30 @@ public class UserService {
         return userStorage.getById(userId);
     }
 
+    /**
+     * получить данные пользователя по его ID, загрузив только указанные поля
+     *
+     * @param userId ID пользователя
+     * @param fields набор загружаемых полей
+     * @return объект типа User или null если такой ID не найден
+     */
+    public User getById(int userId, Set<UserField> fields) {
+        return userStorage.getById(userId, fields);
+    }
+
+    /**
+     * получить данные пользователей по списку ID одним обращением к хранилищу
+     *
+     * @param idList список ID пользователей
+     * @return список объектов типа User в порядке списка, ненайденные ID пропускаются
+     * @throws ParameterValidationException если в списке больше IdListValidator.MAX_ID_LIST_SIZE элементов
+     *                                      или есть пустые элементы
+     */
+    public List<User> getByIdList(List<Integer> idList) throws ParameterValidationException {
+        IdListValidator.validate(idList);
+        return userStorage.getByIdList(idList);
+    }
+
     /**
      * создать запись пользователя в хранилище, присвоить уникальный id
      *
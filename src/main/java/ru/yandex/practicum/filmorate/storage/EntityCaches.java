@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.models.CacheStatistics;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.User;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Кэши объектов Film и User по id и индекс лайков пользователей, общие для кэширующих хранилищ.
+ * Используется Caffeine (вытеснение W-TinyLFU), размер каждого кэша ограничен оценкой занимаемой памяти
+ * в процентах от максимального размера кучи (filmorate.cache.heap-percent).
+ * Кэши общие, так как очистка таблицы пользователей каскадно удаляет лайки фильмов.
+ * Индекс лайков хранит для пользователя набор id лайкнутых фильмов в виде сжатого битового множества (RoaringBitmap),
+ * пересечение таких множеств выполняется без обращения к БД
+ */
+@Component
+public class EntityCaches {
+    /**
+     * оценка размера объекта без строк и коллекций, байт
+     */
+    private static final int ENTITY_BASE_WEIGHT = 160;
+
+    /**
+     * оценка размера элемента коллекции (жанра, id пользователя), байт
+     */
+    private static final int ELEMENT_WEIGHT = 48;
+
+    private final boolean enabled;
+    private final Cache<Integer, Film> films;
+    private final Cache<Integer, User> users;
+    private final Cache<Integer, RoaringBitmap> userLikes;
+
+    /**
+     * кэши результатов сервисов, которые очищаются вместе с кэшами объектов
+     */
+    private final Map<String, Cache<?, ?>> registeredCaches = new ConcurrentHashMap<>();
+
+    /**
+     * действия при очистке кэшей для данных сервисов, которые хранятся не в Caffeine
+     */
+    private final List<Runnable> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    public EntityCaches(@Value("${filmorate.cache.enabled:true}") boolean enabled
+            , @Value("${filmorate.cache.heap-percent:5}") int heapPercent) {
+        this.enabled = enabled;
+
+        long maxWeight = Runtime.getRuntime().maxMemory() / 100 * heapPercent;
+        this.films = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Integer id, Film film) -> weigh(film))
+                .recordStats()
+                .build();
+        this.users = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Integer id, User user) -> weigh(user))
+                .recordStats()
+                .build();
+        this.userLikes = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Integer id, RoaringBitmap filmIds) -> ENTITY_BASE_WEIGHT + (int) filmIds.getLongSizeInBytes())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * признак включенного кэширования, если false - кэширующие хранилища обращаются к БД напрямую
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Cache<Integer, Film> films() {
+        return films;
+    }
+
+    public Cache<Integer, User> users() {
+        return users;
+    }
+
+    /**
+     * индекс лайков: id пользователя - множество id лайкнутых им фильмов.
+     * Множества не изменяются после помещения в кэш, изменение выполняется заменой на измененную копию
+     */
+    public Cache<Integer, RoaringBitmap> userLikes() {
+        return userLikes;
+    }
+
+    /**
+     * зарегистрировать кэш результатов, построенных по данным хранилищ: он очищается в invalidateAll
+     * и выводится в статистике
+     *
+     * @param name  имя кэша
+     * @param cache кэш
+     */
+    public void register(String name, Cache<?, ?> cache) {
+        registeredCaches.put(name, cache);
+    }
+
+    /**
+     * зарегистрировать действие, которое выполняется при очистке всех кэшей
+     *
+     * @param listener действие
+     */
+    public void addInvalidationListener(Runnable listener) {
+        invalidationListeners.add(listener);
+    }
+
+    /**
+     * очистить все кэши
+     */
+    public void invalidateAll() {
+        films.invalidateAll();
+        users.invalidateAll();
+        userLikes.invalidateAll();
+        registeredCaches.values().forEach(Cache::invalidateAll);
+        invalidationListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * статистика кэшей: попадания, промахи, вытеснения, размер
+     *
+     * @return статистика по имени кэша
+     */
+    public Map<String, CacheStatistics> getStatistics() {
+        Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+        getCaches().forEach((name, cache) -> statistics.put(name, toStatistics(cache)));
+        return statistics;
+    }
+
+    /**
+     * все кэши: объектов, индекса лайков и зарегистрированные кэши сервисов
+     *
+     * @return кэши по имени
+     */
+    public Map<String, Cache<?, ?>> getCaches() {
+        Map<String, Cache<?, ?>> caches = new LinkedHashMap<>();
+        caches.put("films", films);
+        caches.put("users", users);
+        caches.put("userLikes", userLikes);
+        caches.putAll(registeredCaches);
+        return caches;
+    }
+
+    private static CacheStatistics toStatistics(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(stats.hitCount()
+                , stats.missCount()
+                , stats.hitRate()
+                , stats.evictionCount()
+                , cache.estimatedSize()
+                , cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+    }
+
+    private static int weigh(Film film) {
+        return ENTITY_BASE_WEIGHT
+                + 2 * (length(film.getName()) + length(film.getDescription()))
+                + ELEMENT_WEIGHT * (film.getGenres().size() + film.getLikedUserIdSet().size());
+    }
+
+    private static int weigh(User user) {
+        return ENTITY_BASE_WEIGHT
+                + 2 * (length(user.getEmail()) + length(user.getLogin()) + length(user.getName()))
+                + ELEMENT_WEIGHT * user.getFriendIdSet().size();
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Карта уже загруженных в рамках текущего HTTP-запроса объектов (identity map).
+ * Повторная загрузка того же объекта в рамках запроса возвращает тот же экземпляр без обращения к кэшу и БД.
+ * Область действия открывается фильтром RequestScopeFilter; вне HTTP-запроса (фоновые задачи, тесты хранилищ)
+ * карта неактивна и все методы ничего не делают
+ */
+@Component
+public class RequestIdentityMap {
+    private final ThreadLocal<Map<Class<?>, Map<Integer, Object>>> scope = new ThreadLocal<>();
+
+    /**
+     * открыть область действия для текущего потока
+     */
+    public void begin() {
+        scope.set(new HashMap<>());
+    }
+
+    /**
+     * закрыть область действия текущего потока
+     */
+    public void end() {
+        scope.remove();
+    }
+
+    /**
+     * признак открытой области действия
+     */
+    public boolean isActive() {
+        return scope.get() != null;
+    }
+
+    /**
+     * получить загруженный ранее объект
+     *
+     * @param type тип объекта
+     * @param id   id объекта
+     * @return объект или null если он не загружался или карта неактивна
+     */
+    public <T> T get(Class<T> type, int id) {
+        Map<Class<?>, Map<Integer, Object>> entities = scope.get();
+        if (entities == null) {
+            return null;
+        }
+
+        Map<Integer, Object> entitiesOfType = entities.get(type);
+        return entitiesOfType == null ? null : type.cast(entitiesOfType.get(id));
+    }
+
+    /**
+     * запомнить загруженный объект
+     *
+     * @param type   тип объекта
+     * @param id     id объекта
+     * @param entity объект, null не запоминается
+     * @return переданный объект
+     */
+    public <T> T put(Class<T> type, int id, T entity) {
+        Map<Class<?>, Map<Integer, Object>> entities = scope.get();
+        if (entities != null && entity != null) {
+            entities.computeIfAbsent(type, key -> new HashMap<>()).put(id, entity);
+        }
+        return entity;
+    }
+
+    /**
+     * забыть объект после его изменения
+     *
+     * @param type тип объекта
+     * @param id   id объекта
+     */
+    public void remove(Class<?> type, int id) {
+        Map<Class<?>, Map<Integer, Object>> entities = scope.get();
+        if (entities != null && entities.containsKey(type)) {
+            entities.get(type).remove(id);
+        }
+    }
+
+    /**
+     * забыть все объекты
+     */
+    public void clear() {
+        Map<Class<?>, Map<Integer, Object>> entities = scope.get();
+        if (entities != null) {
+            entities.clear();
+        }
+    }
+}
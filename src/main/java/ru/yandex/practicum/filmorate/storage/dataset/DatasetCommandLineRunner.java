@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage.dataset;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+
+/**
+ * Генерация набора данных из командной строки с профилем dataset, после записи приложение завершается:
+ * java -jar filmorate.jar --spring.profiles.active=dataset --filmorate.dataset.users=100000
+ */
+@Component
+@Profile("dataset")
+public class DatasetCommandLineRunner implements ApplicationRunner {
+    private final DatasetGenerator generator;
+    private final ConfigurableApplicationContext context;
+    private final DatasetSpec spec;
+
+    @Autowired
+    public DatasetCommandLineRunner(DatasetGenerator generator, ConfigurableApplicationContext context
+            , @Value("${filmorate.dataset.users}") int users
+            , @Value("${filmorate.dataset.films}") int films
+            , @Value("${filmorate.dataset.friends-per-user}") int friendsPerUser
+            , @Value("${filmorate.dataset.likes-per-user}") int likesPerUser
+            , @Value("${filmorate.dataset.zipf-exponent}") double zipfExponent
+            , @Value("${filmorate.dataset.seed}") long seed) {
+        this.generator = generator;
+        this.context = context;
+        this.spec = new DatasetSpec(users, films, friendsPerUser, likesPerUser, zipfExponent, seed);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        generator.generate(spec);
+        SpringApplication.exit(context);
+    }
+}
@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.storage.dataset;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.models.DatasetResult;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Генератор воспроизводимых наборов данных для нагрузочного тестирования и бенчмарков.
+ * Граф дружбы строится предпочтительным присоединением (количество подписчиков распределено по степенному закону),
+ * популярность фильмов для лайков распределена по закону Ципфа. Данные записываются пакетными вставками
+ * в таблицы schema.sql, справочники жанров и рейтингов MPA берутся из базы
+ */
+@Component
+@Slf4j
+public class DatasetGenerator {
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_GENRES_PER_FILM = 3;
+    // доля друзей, выбираемых равновероятно, а не пропорционально количеству связей
+    private static final int UNIFORM_FRIEND_CHOICE_PERCENT = 25;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityCaches caches;
+
+    @Autowired
+    public DatasetGenerator(JdbcTemplate jdbcTemplate, EntityCaches caches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.caches = caches;
+    }
+
+    /**
+     * удалить всех пользователей и фильмы и записать новый набор данных, кэши приложения очищаются
+     *
+     * @param spec параметры набора данных
+     * @return количество созданных записей
+     */
+    public DatasetResult generate(DatasetSpec spec) {
+        if (spec.getUsers() < 1 || spec.getFilms() < 1 || spec.getFriendsPerUser() < 0 || spec.getLikesPerUser() < 0) {
+            throw new IllegalArgumentException("Некорректные параметры набора данных: " + spec);
+        }
+        long start = System.currentTimeMillis();
+        List<Integer> genreIds = jdbcTemplate.queryForList("SELECT genre_id FROM genres ORDER BY genre_id", Integer.class);
+        List<Integer> mpaRatingIds = jdbcTemplate.queryForList(
+                "SELECT mpa_rating_id FROM mpa_ratings ORDER BY mpa_rating_id", Integer.class);
+
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM films");
+
+        int users = spec.getUsers();
+        batchInsert("INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", users
+                , (ps, row) -> {
+                    int id = row + 1;
+                    ps.setInt(1, id);
+                    ps.setString(2, "user" + id + "@mail.ru");
+                    ps.setString(3, "user" + id);
+                    ps.setString(4, "Пользователь " + id);
+                    ps.setDate(5, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(id * 7919L % 20000)));
+                });
+
+        int films = spec.getFilms();
+        batchInsert("INSERT INTO films (film_id, name, description, release_date, duration, mpa_rating_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", films, (ps, row) -> {
+            int id = row + 1;
+            ps.setInt(1, id);
+            ps.setString(2, "Фильм " + id);
+            ps.setString(3, "Описание фильма " + id);
+            ps.setDate(4, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(id * 104729L % 27000)));
+            ps.setInt(5, 60 + id % 120);
+            ps.setInt(6, mpaRatingIds.get(id % mpaRatingIds.size()));
+        });
+
+        Edges filmGenres = filmGenres(new Random(spec.getSeed() + 2), films, genreIds);
+        batchInsert("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", filmGenres);
+
+        Edges friendships = friendships(new Random(spec.getSeed()), users, spec.getFriendsPerUser());
+        batchInsert("INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)", friendships);
+
+        Edges likes = likes(new Random(spec.getSeed() + 1), users, films, spec.getLikesPerUser()
+                , spec.getZipfExponent());
+        batchInsert("INSERT INTO film_likes (user_id, film_id) VALUES (?, ?)", likes);
+
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (users + 1));
+        jdbcTemplate.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH " + (films + 1));
+        caches.invalidateAll();
+
+        DatasetResult result = new DatasetResult(users, films, filmGenres.count, friendships.count, likes.count
+                , System.currentTimeMillis() - start);
+        log.info("Сгенерирован набор данных {}: {}", spec, result);
+        return result;
+    }
+
+    /**
+     * построить граф дружбы без записи в базу - тот же, что создает generate с такими же параметрами
+     *
+     * @param users          количество пользователей
+     * @param friendsPerUser количество друзей, добавляемых каждым пользователем
+     * @param seed           начальное значение генератора случайных чисел
+     * @return граф дружбы
+     */
+    public static FriendGraph generateFriendGraph(int users, int friendsPerUser, long seed) {
+        Edges edges = friendships(new Random(seed), users, friendsPerUser);
+        return FriendGraph.build(users, edges.from, edges.to, edges.count);
+    }
+
+    /**
+     * Предпочтительное присоединение: пользователь i добавляет в друзья min(friendsPerUser, i - 1) разных
+     * пользователей с меньшими id, чаще выбирая тех, у кого уже много связей
+     */
+    private static Edges friendships(Random random, int users, int friendsPerUser) {
+        Edges edges = new Edges((long) users * friendsPerUser);
+        // концы всех добавленных ребер: случайный элемент выбирается с вероятностью, пропорциональной степени
+        int[] endpoints = new int[edges.from.length * 2];
+        int endpointCount = 0;
+
+        for (int user = 2; user <= users; user++) {
+            int friends = Math.min(friendsPerUser, user - 1);
+            int first = edges.count;
+            while (edges.count - first < friends) {
+                int friend = endpointCount == 0 || random.nextInt(100) < UNIFORM_FRIEND_CHOICE_PERCENT
+                        ? 1 + random.nextInt(user - 1)
+                        : endpoints[random.nextInt(endpointCount)];
+                if (friend == user || edges.containsTarget(first, friend)) {
+                    continue;
+                }
+                edges.add(user, friend);
+                endpoints[endpointCount++] = user;
+                endpoints[endpointCount++] = friend;
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Каждый пользователь ставит от 0 до 2 * likesPerUser лайков разным фильмам. Фильм выбирается по рангу
+     * популярности с распределением Ципфа, ранги перемешаны с id фильмов
+     */
+    private static Edges likes(Random random, int users, int films, int likesPerUser, double zipfExponent) {
+        int[] filmByRank = shuffledIds(random, films);
+        ZipfSampler sampler = new ZipfSampler(films, zipfExponent);
+        Edges edges = new Edges((long) users * Math.min(films, likesPerUser * 2L));
+
+        for (int user = 1; user <= users; user++) {
+            int likes = Math.min(films, likesPerUser == 0 ? 0 : random.nextInt(likesPerUser * 2 + 1));
+            int first = edges.count;
+            // при сильном перекосе распределения редкие фильмы выпадают редко, поэтому попытки ограничены
+            for (int attempt = 0; edges.count - first < likes && attempt < likes * 20; attempt++) {
+                int filmId = filmByRank[sampler.next(random)];
+                if (!edges.containsTarget(first, filmId)) {
+                    edges.add(user, filmId);
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * каждому фильму от 1 до MAX_GENRES_PER_FILM разных жанров
+     */
+    private static Edges filmGenres(Random random, int films, List<Integer> genreIds) {
+        Edges edges = new Edges((long) films * MAX_GENRES_PER_FILM);
+        if (genreIds.isEmpty()) {
+            return edges;
+        }
+        for (int film = 1; film <= films; film++) {
+            int genres = 1 + random.nextInt(Math.min(MAX_GENRES_PER_FILM, genreIds.size()));
+            int first = edges.count;
+            while (edges.count - first < genres) {
+                int genreId = genreIds.get(random.nextInt(genreIds.size()));
+                if (!edges.containsTarget(first, genreId)) {
+                    edges.add(film, genreId);
+                }
+            }
+        }
+        return edges;
+    }
+
+    private static int[] shuffledIds(Random random, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+        return ids;
+    }
+
+    private void batchInsert(String sql, Edges edges) {
+        batchInsert(sql, edges.count, (ps, row) -> {
+            ps.setInt(1, edges.from[row]);
+            ps.setInt(2, edges.to[row]);
+        });
+    }
+
+    /**
+     * вставка rowCount строк пакетами по BATCH_SIZE
+     */
+    private void batchInsert(String sql, int rowCount, RowWriter writer) {
+        for (int from = 0; from < rowCount; from += BATCH_SIZE) {
+            int offset = from;
+            int size = Math.min(BATCH_SIZE, rowCount - from);
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    writer.write(ps, offset + i);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+    }
+
+    private interface RowWriter {
+        void write(PreparedStatement ps, int row) throws SQLException;
+    }
+
+    /**
+     * список пар id (from, to) в примитивных массивах
+     */
+    private static class Edges {
+        final int[] from;
+        final int[] to;
+        int count;
+
+        Edges(long capacity) {
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Слишком большой набор данных: " + capacity + " записей");
+            }
+            from = new int[(int) capacity];
+            to = new int[(int) capacity];
+        }
+
+        void add(int fromId, int toId) {
+            from[count] = fromId;
+            to[count] = toId;
+            count++;
+        }
+
+        /**
+         * есть ли toId среди концов ребер, добавленных начиная с позиции first
+         */
+        boolean containsTarget(int first, int toId) {
+            for (int i = first; i < count; i++) {
+                if (to[i] == toId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
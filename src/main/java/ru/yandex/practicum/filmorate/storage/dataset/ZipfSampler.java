@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.dataset;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Выбор ранга от 0 до n - 1 с вероятностью, пропорциональной 1 / (ранг + 1)^exponent (распределение Ципфа).
+ * Накопленные вероятности считаются один раз, выбор - двоичный поиск
+ */
+class ZipfSampler {
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    int next(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage.dictionary;
+
+import ru.yandex.practicum.filmorate.models.Genre;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Общие экземпляры элементов справочников жанров и рейтингов MPA для маппинга строк запросов:
+ * справочники небольшие, поэтому вместо нового объекта на каждую прочитанную строку отдается сохраненный
+ * объект с тем же id и названием. Если название в БД изменилось, сохраненный объект заменяется новым.
+ * Отданные объекты используются совместно, поэтому Genre и MpaRating неизменяемые
+ */
+public final class DictionaryFlyweights {
+    // id больше или равные пределу не сохраняются, для них создаются новые объекты
+    private static final int MAX_ID = 64;
+    private static final AtomicReferenceArray<Genre> GENRES = new AtomicReferenceArray<>(MAX_ID);
+    private static final AtomicReferenceArray<MpaRating> MPA_RATINGS = new AtomicReferenceArray<>(MAX_ID);
+
+    private DictionaryFlyweights() {
+    }
+
+    /**
+     * жанр с указанными id и названием
+     *
+     * @param id   id жанра
+     * @param name название жанра
+     * @return общий экземпляр жанра
+     */
+    public static Genre genre(int id, String name) {
+        return intern(GENRES, id, name, Genre::getName, Genre::new);
+    }
+
+    /**
+     * рейтинг MPA с указанными id и названием
+     *
+     * @param id   id рейтинга
+     * @param name название рейтинга
+     * @return общий экземпляр рейтинга
+     */
+    public static MpaRating mpaRating(int id, String name) {
+        return intern(MPA_RATINGS, id, name, MpaRating::getName, MpaRating::new);
+    }
+
+    private static <T> T intern(AtomicReferenceArray<T> values, int id, String name
+            , Function<T, String> nameGetter, BiFunction<Integer, String, T> factory) {
+        if (id < 0 || id >= MAX_ID) {
+            return factory.apply(id, name);
+        }
+        T value = values.get(id);
+        if (value == null || !Objects.equals(nameGetter.apply(value), name)) {
+            value = factory.apply(id, name);
+            values.set(id, value);
+        }
+        return value;
+    }
+}
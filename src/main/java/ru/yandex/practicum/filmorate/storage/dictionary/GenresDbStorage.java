@@ -49,6 +49,6 @@ public class GenresDbStorage implements DictionaryStorage<Genre> {
      * @throws SQLException
      */
     private Genre mapFunction(ResultSet rs, int rowNum) throws SQLException {
-        return new Genre(rs.getInt("genre_id"), rs.getString("genre_name"));
+        return DictionaryFlyweights.genre(rs.getInt("genre_id"), rs.getString("genre_name"));
     }
 }
\ No newline at end of file
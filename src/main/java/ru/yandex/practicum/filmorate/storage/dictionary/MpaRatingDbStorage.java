@@ -50,6 +50,6 @@ public class MpaRatingDbStorage implements DictionaryStorage<MpaRating> {
      * @throws SQLException
      */
     private MpaRating mapFunction(ResultSet rs, int rowNum) throws SQLException {
-        return new MpaRating(rs.getInt("mpa_rating_id"), rs.getString("mpa_rating_name"));
+        return DictionaryFlyweights.mpaRating(rs.getInt("mpa_rating_id"), rs.getString("mpa_rating_name"));
     }
 }
\ No newline at end of file
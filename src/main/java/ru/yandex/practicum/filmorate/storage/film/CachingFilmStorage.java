@@ -0,0 +1,257 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.FilmField;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.RequestIdentityMap;
+
+import java.util.*;
+
+/**
+ * Хранилище фильмов с кэшированием полных объектов по id поверх filmDbStorage.
+ * Каждый метод записи после обращения к БД удаляет из кэша затронутые записи;
+ * удаление ждет завершения параллельной загрузки того же id, поэтому устаревший объект в кэше не остается.
+ * Из кэша отдаются копии объектов, чтобы изменения у вызывающего кода не попадали в кэш
+ */
+@Component
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage filmStorage;
+    private final EntityCaches caches;
+    private final RequestIdentityMap identityMap;
+
+    @Autowired
+    public CachingFilmStorage(@Qualifier("filmDbStorage") FilmStorage filmStorage
+            , EntityCaches caches
+            , RequestIdentityMap identityMap) {
+        this.filmStorage = filmStorage;
+        this.caches = caches;
+        this.identityMap = identityMap;
+    }
+
+    /**
+     * отдать объект с указанным id: в рамках HTTP-запроса повторно отдается тот же экземпляр,
+     * иначе - копия из кэша, если объект там есть, или объект из БД
+     *
+     * @param id ид фильма
+     * @return объект типа Film или null если объект не найден
+     */
+    @Override
+    public Film getById(int id) {
+        Film film = identityMap.get(Film.class, id);
+        if (film != null) {
+            return film;
+        }
+
+        if (caches.isEnabled()) {
+            film = copy(caches.films().get(id, filmStorage::getById));
+        } else {
+            film = filmStorage.getById(id);
+        }
+        return identityMap.put(Film.class, id, film);
+    }
+
+    /**
+     * отдать объект с указанным id, загрузив только указанные поля.
+     * Кэшируются только полные объекты
+     *
+     * @param id     ид фильма
+     * @param fields набор загружаемых полей
+     * @return объект типа Film или null если объект не найден
+     */
+    @Override
+    public Film getById(int id, Set<FilmField> fields) {
+        if (fields.containsAll(FilmField.ALL)) {
+            return getById(id);
+        }
+        return filmStorage.getById(id, fields);
+    }
+
+    /**
+     * отдать объекты с указанными в списке id в порядке списка.
+     * Уже загруженные в рамках запроса и закэшированные объекты берутся без обращения к БД,
+     * остальные загружаются одним проходом filmDbStorage. Загруженные списком объекты в кэш не помещаются
+     *
+     * @param idList список ид фильмов
+     * @return список объектов типа Film, отсутствующие в хранилище id пропускаются
+     */
+    @Override
+    public List<Film> getByIdList(List<Integer> idList) {
+        Map<Integer, Film> found = new HashMap<>();
+        Set<Integer> missingIdSet = new LinkedHashSet<>();
+
+        for (Integer id : idList) {
+            Film film = identityMap.get(Film.class, id);
+            if (film == null && caches.isEnabled()) {
+                film = copy(caches.films().getIfPresent(id));
+            }
+
+            if (film != null) {
+                found.put(id, film);
+            } else {
+                missingIdSet.add(id);
+            }
+        }
+
+        if (!missingIdSet.isEmpty()) {
+            for (Film film : filmStorage.getByIdList(new ArrayList<>(missingIdSet))) {
+                found.put(film.getId(), film);
+            }
+        }
+
+        List<Film> filmList = new ArrayList<>();
+        for (Integer id : idList) {
+            Film film = found.get(id);
+            if (film != null) {
+                filmList.add(identityMap.put(Film.class, id, film));
+            }
+        }
+        return filmList;
+    }
+
+    @Override
+    public List<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    @Override
+    public List<Film> getAll(Set<FilmField> fields) {
+        return filmStorage.getAll(fields);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return filmStorage.create(film);
+    }
+
+    @Override
+    public Film update(Film film) {
+        Film updatedFilm = filmStorage.update(film);
+        caches.films().invalidate(film.getId());
+        identityMap.remove(Film.class, film.getId());
+        return updatedFilm;
+    }
+
+    /**
+     * Очистить хранилище и кэши
+     */
+    @Override
+    public void clearAll() {
+        filmStorage.clearAll();
+        caches.invalidateAll();
+        identityMap.clear();
+    }
+
+    /**
+     * добавить лайк, закэшированное множество лайков пользователя заменяется копией с новым фильмом.
+     * Замена выполняется атомарно по отношению к параллельной загрузке множества из БД
+     */
+    @Override
+    public void addLike(Film film, int userId) {
+        filmStorage.addLike(film, userId);
+        caches.films().invalidate(film.getId());
+        identityMap.remove(Film.class, film.getId());
+        caches.userLikes().asMap().computeIfPresent(userId, (id, filmIds) -> {
+            RoaringBitmap newFilmIds = filmIds.clone();
+            newFilmIds.add(film.getId());
+            return newFilmIds;
+        });
+    }
+
+    /**
+     * убрать лайк, закэшированное множество лайков пользователя заменяется копией без фильма
+     */
+    @Override
+    public void removeLike(Film film, int userId) {
+        filmStorage.removeLike(film, userId);
+        caches.films().invalidate(film.getId());
+        identityMap.remove(Film.class, film.getId());
+        caches.userLikes().asMap().computeIfPresent(userId, (id, filmIds) -> {
+            RoaringBitmap newFilmIds = filmIds.clone();
+            newFilmIds.remove(film.getId());
+            return newFilmIds;
+        });
+    }
+
+    @Override
+    public List<Film> getPopularFilms(Integer count) {
+        return filmStorage.getPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> getPopularFilms(Integer count, Set<FilmField> fields) {
+        return filmStorage.getPopularFilms(count, fields);
+    }
+
+    @Override
+    public Map<Integer, Integer> getPopularFilmLikes(Integer count) {
+        return filmStorage.getPopularFilmLikes(count);
+    }
+
+    /**
+     * вернуть id фильмов, которые лайкнул пользователь, из индекса лайков или из БД
+     *
+     * @param userId id пользователя
+     * @return множество id фильмов, пустое если лайков нет или пользователь не найден
+     */
+    @Override
+    public RoaringBitmap getLikedFilmIds(int userId) {
+        if (caches.isEnabled()) {
+            return caches.userLikes().get(userId, filmStorage::getLikedFilmIds);
+        }
+        return filmStorage.getLikedFilmIds(userId);
+    }
+
+    /**
+     * вернуть id фильмов, которые лайкнули пользователи из списка.
+     * Множества из индекса лайков берутся без обращения к БД, остальные загружаются одним запросом;
+     * загруженные списком множества в индекс не помещаются, как и объекты в getByIdList
+     *
+     * @param userIdList список id пользователей
+     * @return множества id фильмов по id пользователя, для пользователей без лайков - пустые множества
+     */
+    @Override
+    public Map<Integer, RoaringBitmap> getLikedFilmIds(List<Integer> userIdList) {
+        if (!caches.isEnabled()) {
+            return filmStorage.getLikedFilmIds(userIdList);
+        }
+
+        Map<Integer, RoaringBitmap> filmIdsByUser = new HashMap<>(caches.userLikes().getAllPresent(userIdList));
+        List<Integer> missingUserIdList = new ArrayList<>();
+        for (Integer userId : userIdList) {
+            if (!filmIdsByUser.containsKey(userId)) {
+                missingUserIdList.add(userId);
+            }
+        }
+
+        if (!missingUserIdList.isEmpty()) {
+            filmIdsByUser.putAll(filmStorage.getLikedFilmIds(missingUserIdList));
+        }
+        return filmIdsByUser;
+    }
+
+    /**
+     * копия полного объекта с копиями коллекций
+     *
+     * @param film исходный объект
+     * @return копия или null если исходный объект null
+     */
+    private static Film copy(Film film) {
+        if (film == null) {
+            return null;
+        }
+
+        Film copy = new Film(film.getId()
+                , film.getName()
+                , film.getDescription()
+                , film.getReleaseDate()
+                , film.getDuration()
+                , film.getMpa()
+                , new ArrayList<>(film.getGenres()));
+        copy.setLikedUserIdSet(new HashSet<>(film.getLikedUserIdSet()));
+        return copy;
+    }
+}
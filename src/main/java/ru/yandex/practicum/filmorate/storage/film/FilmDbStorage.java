@@ -1,27 +1,71 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
-import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.FilmField;
 import ru.yandex.practicum.filmorate.models.Genre;
-import ru.yandex.practicum.filmorate.models.MpaRating;
+import ru.yandex.practicum.filmorate.storage.dictionary.DictionaryFlyweights;
 
+import java.sql.Array;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Component
-@RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    /**
+     * если true - жанры и лайки загружаются тем же запросом, что и фильмы (агрегацией в массивы),
+     * иначе - отдельными запросами к film_genres и film_likes для всего списка фильмов
+     */
+    private final boolean singleQueryHydration;
+
+    /**
+     * пул для параллельной загрузки жанров и лайков при загрузке отдельными запросами,
+     * null - жанры и лайки загружаются последовательно
+     */
+    private final Executor childLoadExecutor;
+
+    /**
+     * если true - в списке популярных фильмов каждый лайк учитывается с весом, равным оценке влияния
+     * поставившего его пользователя (1 - если оценка не рассчитана)
+     */
+    private final boolean weightLikesByInfluence;
+
+    @Autowired
+    public FilmDbStorage(JdbcTemplate jdbcTemplate
+            , @Value("${filmorate.storage.film.single-query-hydration:false}") boolean singleQueryHydration
+            , @Value("${filmorate.storage.film.parallel-child-loads:false}") boolean parallelChildLoads
+            , @Qualifier("filmChildLoadExecutor") Executor childLoadExecutor
+            , @Value("${filmorate.popular.weight-by-influence:false}") boolean weightLikesByInfluence) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.singleQueryHydration = singleQueryHydration;
+        this.childLoadExecutor = parallelChildLoads ? childLoadExecutor : null;
+        this.weightLikesByInfluence = weightLikesByInfluence;
+    }
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, boolean singleQueryHydration, boolean parallelChildLoads
+            , Executor childLoadExecutor) {
+        this(jdbcTemplate, singleQueryHydration, parallelChildLoads, childLoadExecutor, false);
+    }
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, boolean singleQueryHydration) {
+        this(jdbcTemplate, singleQueryHydration, false, null, false);
+    }
+
     /**
      * отдать объект с указанным id
      *
@@ -30,21 +74,58 @@ public class FilmDbStorage implements FilmStorage {
      */
     @Override
     public Film getById(int id) {
-        String sqlQuery = "SELECT f.*, mpa.mpa_rating_name " +
-                "FROM films AS f LEFT JOIN mpa_ratings as mpa ON f.mpa_rating_id = mpa.mpa_rating_id " +
-                "WHERE film_id = ?";
-        List<Film> filmList = jdbcTemplate.query(sqlQuery, this::mapFunction, id);
+        return getById(id, FilmField.ALL);
+    }
+
+    /**
+     * отдать объект с указанным id, загрузив только указанные поля.
+     * Лайки загружаются только при запросе всех полей
+     *
+     * @param id     ид фильма
+     * @param fields набор загружаемых полей
+     * @return объект типа Film или null если объект не найден
+     */
+    @Override
+    public Film getById(int id, Set<FilmField> fields) {
+        String sqlQuery = "SELECT " + getSelectColumns(fields) + " " +
+                "FROM " + getFromTables(fields) + " " +
+                "WHERE f.film_id = ?";
+        List<Film> filmList = jdbcTemplate.query(sqlQuery, getMapFunction(fields), id);
 
         //если запись была получена
         if (!filmList.isEmpty()) {
-            loadGenresToFilms(filmList);
-            loadLikedUsersToFilms(filmList);
+            loadChildrenToFilms(filmList, fields);
             return filmList.get(0);
         } else {
             return null;
         }
     }
 
+    /**
+     * отдать объекты с указанными в списке id, жанры и лайки загружаются для всего списка сразу,
+     * поэтому количество запросов не зависит от длины списка
+     *
+     * @param idList список ид фильмов
+     * @return список объектов типа Film в порядке id, отсутствующие в БД id пропускаются
+     */
+    @Override
+    public List<Film> getByIdList(List<Integer> idList) {
+        if (idList.isEmpty()) {
+            return List.of();
+        }
+
+        String sqlQuery = "SELECT " + getSelectColumns(FilmField.ALL) + " " +
+                "FROM " + getFromTables(FilmField.ALL) + " " +
+                "WHERE f.film_id = ANY(?) " +
+                "ORDER BY f.film_id";
+        List<Film> filmList = jdbcTemplate.query(sqlQuery, getMapFunction(FilmField.ALL)
+                , (Object) idList.toArray(new Integer[0]));
+
+        loadChildrenToFilms(filmList, FilmField.ALL);
+
+        return filmList;
+    }
+
     /**
      * Отдать все хранимые объекты Film в виде списка
      *
@@ -52,18 +133,185 @@ public class FilmDbStorage implements FilmStorage {
      */
     @Override
     public List<Film> getAll() {
-        String sqlQuery = "SELECT f.*, mpa.mpa_rating_name " +
-                "FROM films AS f LEFT JOIN mpa_ratings as mpa ON f.mpa_rating_id = mpa.mpa_rating_id " +
+        return getAll(FilmField.ALL);
+    }
+
+    /**
+     * Отдать все хранимые объекты Film в виде списка, загрузив только указанные поля.
+     * Лайки загружаются только при запросе всех полей
+     *
+     * @param fields набор загружаемых полей
+     * @return список объектов типа Film
+     */
+    @Override
+    public List<Film> getAll(Set<FilmField> fields) {
+        String sqlQuery = "SELECT " + getSelectColumns(fields) + " " +
+                "FROM " + getFromTables(fields) + " " +
                 "ORDER BY f.film_id";
-        List<Film> filmList = jdbcTemplate.query(sqlQuery, this::mapFunction);
+        List<Film> filmList = jdbcTemplate.query(sqlQuery, getMapFunction(fields));
 
-        //если фильмы были загружены - также загрузить их жанры
-        if (!filmList.isEmpty()) {
-            loadGenresToFilms(filmList);
+        //если фильмы были загружены - также загрузить их жанры и лайки
+        loadChildrenToFilms(filmList, fields);
+
+        return filmList;
+    }
+
+    /**
+     * метод формирует список колонок запроса к таблице films для указанного набора полей
+     *
+     * @param fields набор загружаемых полей
+     * @return список колонок через запятую
+     */
+    private String getSelectColumns(Set<FilmField> fields) {
+        StringJoiner columns = new StringJoiner(", ");
+        columns.add("f.film_id");
+        if (fields.contains(FilmField.NAME)) columns.add("f.name");
+        if (fields.contains(FilmField.DESCRIPTION)) columns.add("f.description");
+        if (fields.contains(FilmField.RELEASE_DATE)) columns.add("f.release_date");
+        if (fields.contains(FilmField.DURATION)) columns.add("f.duration");
+        if (fields.contains(FilmField.MPA)) columns.add("f.mpa_rating_id").add("mpa.mpa_rating_name");
+
+        if (singleQueryHydration) {
+            if (fields.contains(FilmField.GENRES)) {
+                columns.add("(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) " +
+                        "FROM film_genres AS fg WHERE fg.film_id = f.film_id) AS genre_ids");
+                columns.add("(SELECT ARRAY_AGG(g.genre_name ORDER BY fg.genre_id) " +
+                        "FROM film_genres AS fg JOIN genres AS g ON fg.genre_id = g.genre_id " +
+                        "WHERE fg.film_id = f.film_id) AS genre_names");
+            }
+            if (fields.containsAll(FilmField.ALL)) {
+                columns.add("(SELECT ARRAY_AGG(fl2.user_id) FROM film_likes AS fl2 WHERE fl2.film_id = f.film_id) AS liked_user_ids");
+            }
+        }
+
+        return columns.toString();
+    }
+
+    /**
+     * метод формирует секцию FROM запроса к таблице films, таблица mpa_ratings присоединяется только если нужна
+     *
+     * @param fields набор загружаемых полей
+     * @return таблицы для секции FROM
+     */
+    private String getFromTables(Set<FilmField> fields) {
+        return "films AS f"
+                + (fields.contains(FilmField.MPA) ? " LEFT JOIN mpa_ratings as mpa ON f.mpa_rating_id = mpa.mpa_rating_id" : "");
+    }
+
+    /**
+     * метод загружает жанры и лайки для списка фильмов, если они нужны для указанного набора полей.
+     * При загрузке одним запросом ничего не делает - данные уже прочитаны функцией маппинга.
+     * Если задан childLoadExecutor и нужны и жанры, и лайки - жанры загружаются в пуле потоков на отдельном
+     * соединении одновременно с загрузкой лайков в текущем потоке. Загрузки изменяют разные поля объектов,
+     * поэтому синхронизация не нужна, завершение загрузки жанров ожидается до возврата из метода
+     *
+     * @param filmList список объектов типа Film
+     * @param fields   набор загружаемых полей
+     */
+    private void loadChildrenToFilms(List<Film> filmList, Set<FilmField> fields) {
+        if (filmList.isEmpty() || singleQueryHydration) {
+            return;
+        }
+
+        boolean loadGenres = fields.contains(FilmField.GENRES);
+        boolean loadLikes = fields.containsAll(FilmField.ALL);
+        if (loadGenres && loadLikes && childLoadExecutor != null) {
+            CompletableFuture<Void> genresLoad = CompletableFuture.runAsync(() -> loadGenresToFilms(filmList), childLoadExecutor);
             loadLikedUsersToFilms(filmList);
+            try {
+                genresLoad.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        } else {
+            if (loadGenres) loadGenresToFilms(filmList);
+            if (loadLikes) loadLikedUsersToFilms(filmList);
         }
+    }
 
-        return filmList;
+    /**
+     * метод возвращает функцию для маппинга данных запроса из таблицы films в объект с указанным набором полей,
+     * список жанров не заполняется, незагружаемые поля остаются равными null
+     *
+     * @param fields набор загружаемых полей
+     * @return функция маппинга
+     */
+    private RowMapper<Film> getMapFunction(Set<FilmField> fields) {
+        RowMapper<Film> mapper = getFilmsColumnsMapFunction(fields);
+        if (!singleQueryHydration) {
+            return mapper;
+        }
+
+        return (ResultSet rs, int rowNum) -> {
+            Film film = mapper.mapRow(rs, rowNum);
+            if (fields.contains(FilmField.GENRES)) readGenres(rs, film);
+            if (fields.containsAll(FilmField.ALL)) readLikedUsers(rs, film);
+            return film;
+        };
+    }
+
+    /**
+     * метод возвращает функцию для маппинга колонок таблицы films в объект с указанным набором полей
+     *
+     * @param fields набор загружаемых полей
+     * @return функция маппинга
+     */
+    private RowMapper<Film> getFilmsColumnsMapFunction(Set<FilmField> fields) {
+        if (fields.containsAll(FilmField.ALL)) {
+            return this::mapFunction;
+        }
+
+        return (ResultSet rs, int rowNum) -> {
+            Film film = new Film();
+            film.setId(rs.getInt("film_id"));
+            film.setName(fields.contains(FilmField.NAME) ? rs.getString("name") : null);
+            film.setDescription(fields.contains(FilmField.DESCRIPTION) ? rs.getString("description") : null);
+            film.setReleaseDate(fields.contains(FilmField.RELEASE_DATE) ? rs.getDate("release_date").toLocalDate() : null);
+            film.setDuration(fields.contains(FilmField.DURATION) ? rs.getInt("duration") : null);
+            film.setMpa(fields.contains(FilmField.MPA)
+                    ? DictionaryFlyweights.mpaRating(rs.getInt("mpa_rating_id"), rs.getString("mpa_rating_name"))
+                    : null);
+            film.setGenres(fields.contains(FilmField.GENRES) ? new ArrayList<>() : null);
+            return film;
+        };
+    }
+
+    /**
+     * метод читает жанры фильма из агрегированных колонок genre_ids и genre_names
+     *
+     * @param rs   данные запроса
+     * @param film объект, в который записываются жанры
+     * @throws SQLException
+     */
+    private void readGenres(ResultSet rs, Film film) throws SQLException {
+        Array genreIds = rs.getArray("genre_ids");
+        Array genreNames = rs.getArray("genre_names");
+        if (genreIds != null && genreNames != null) {
+            Object[] ids = (Object[]) genreIds.getArray();
+            Object[] names = (Object[]) genreNames.getArray();
+            for (int i = 0; i < ids.length; i++) {
+                film.getGenres().add(DictionaryFlyweights.genre((Integer) ids[i], (String) names[i]));
+            }
+        }
+    }
+
+    /**
+     * метод читает id лайкнувших фильм пользователей из агрегированной колонки liked_user_ids
+     *
+     * @param rs   данные запроса
+     * @param film объект, в который записываются лайки
+     * @throws SQLException
+     */
+    private void readLikedUsers(ResultSet rs, Film film) throws SQLException {
+        Array likedUserIds = rs.getArray("liked_user_ids");
+        if (likedUserIds != null) {
+            for (Object userId : (Object[]) likedUserIds.getArray()) {
+                film.getLikedUserIdSet().add((Integer) userId);
+            }
+        }
     }
 
     /**
@@ -79,7 +327,7 @@ public class FilmDbStorage implements FilmStorage {
                 , rs.getString("description")
                 , rs.getDate("release_date").toLocalDate()
                 , rs.getInt("duration")
-                , new MpaRating(rs.getInt("mpa_rating_id"), rs.getString("mpa_rating_name"))
+                , DictionaryFlyweights.mpaRating(rs.getInt("mpa_rating_id"), rs.getString("mpa_rating_name"))
                 , new ArrayList<Genre>());
     }
 
@@ -93,7 +341,8 @@ public class FilmDbStorage implements FilmStorage {
         String sqlQuery = "SELECT g.* " +
                 "FROM film_genres AS fg LEFT JOIN genres AS g ON fg.genre_id = g.genre_id " +
                 "WHERE fg.film_id = ?";
-        return jdbcTemplate.query(sqlQuery, (ResultSet rs, int rowNum) -> new Genre(rs.getInt("genre_id"), rs.getString("genre_name")), filmId);
+        return jdbcTemplate.query(sqlQuery, (ResultSet rs, int rowNum) -> DictionaryFlyweights.genre(rs.getInt("genre_id")
+                , rs.getString("genre_name")), filmId);
     }
 
     /**
@@ -102,23 +351,23 @@ public class FilmDbStorage implements FilmStorage {
      * @param filmList список объектов типа Film
      */
     private void loadGenresToFilms(List<Film> filmList) {
-        Map<Integer, Film> filmMap = new HashMap<>();
+        Map<Integer, Film> filmMap = new HashMap<>(filmList.size() * 4 / 3 + 1);
+        Integer[] filmIds = new Integer[filmList.size()];
 
-        for (Film film : filmList) {
+        for (int i = 0; i < filmIds.length; i++) {
+            Film film = filmList.get(i);
             filmMap.put(film.getId(), film);
+            filmIds[i] = film.getId();
             film.getGenres().clear();
         }
 
         String sqlQuery = "SELECT fg.*, g.genre_name " +
                 "FROM film_genres AS fg LEFT JOIN genres AS g ON fg.genre_id = g.genre_id " +
-                "WHERE film_id IN ("
-                + filmMap.keySet().stream().map(String::valueOf).collect(Collectors.joining(","))
-                + ")";
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sqlQuery);
-        while (rowSet.next()) {
-            Film film = filmMap.get(rowSet.getInt("film_id"));
-            film.getGenres().add(new Genre(rowSet.getInt("genre_id"), rowSet.getString("genre_name")));
-        }
+                "WHERE film_id = ANY(?)";
+        jdbcTemplate.query(sqlQuery, (ResultSet rs) -> {
+            Film film = filmMap.get(rs.getInt("film_id"));
+            film.getGenres().add(DictionaryFlyweights.genre(rs.getInt("genre_id"), rs.getString("genre_name")));
+        }, (Object) filmIds);
     }
 
     /**
@@ -207,7 +456,8 @@ public class FilmDbStorage implements FilmStorage {
 
     /**
      * Обновить объект в БД, поиск обновляемого объекта по film_id
-     * Обновляются жанры, лайки не обновляются
+     * Обновляются жанры, лайки не обновляются.
+     * Наличие фильма определяется по количеству обновленных строк, без предварительной загрузки
      *
      * @param film обновляемый объект
      * @return обновленный объект или null если объект по id не найден
@@ -215,28 +465,30 @@ public class FilmDbStorage implements FilmStorage {
     @Override
     public Film update(Film film) {
         Integer filmId = film.getId();
+        if (filmId <= 0) {
+            return null;
+        }
 
-        //сначала надо проверить есть ли такой фильм в БД
-        if (filmId > 0 && getById(filmId) != null) {
-            //фильм есть, обновляем
-            String sqlQuery = "UPDATE films " +
-                    "SET name = ?, description = ?, release_date = ?, duration = ?, mpa_rating_id = ? " +
-                    "WHERE film_id = ?";
-
-            jdbcTemplate.update(sqlQuery
-                    , film.getName()
-                    , film.getDescription()
-                    , film.getReleaseDate().toString()
-                    , film.getDuration()
-                    , film.getMpa().getId()
-                    , film.getId());
+        String sqlQuery = "UPDATE films " +
+                "SET name = ?, description = ?, release_date = ?, duration = ?, mpa_rating_id = ? " +
+                "WHERE film_id = ?";
 
-            updateGenresOfFilm(film, false);
+        int updatedRows = jdbcTemplate.update(sqlQuery
+                , film.getName()
+                , film.getDescription()
+                , film.getReleaseDate().toString()
+                , film.getDuration()
+                , film.getMpa().getId()
+                , film.getId());
 
-            return getById(film.getId());
-        } else {
+        //фильма с таким id в БД нет
+        if (updatedRows == 0) {
             return null;
         }
+
+        updateGenresOfFilm(film, false);
+
+        return getById(film.getId());
     }
 
     /**
@@ -256,20 +508,19 @@ public class FilmDbStorage implements FilmStorage {
      */
     private void loadLikedUsersToFilms(List<Film> filmList) {
         if (!filmList.isEmpty()) {
-            Map<Integer, Film> filmMap = new HashMap<>();
-            for (Film film : filmList) {
+            Map<Integer, Film> filmMap = new HashMap<>(filmList.size() * 4 / 3 + 1);
+            Integer[] filmIds = new Integer[filmList.size()];
+            for (int i = 0; i < filmIds.length; i++) {
+                Film film = filmList.get(i);
                 filmMap.put(film.getId(), film);
+                filmIds[i] = film.getId();
             }
 
-            String sqlQuery = "SELECT film_id, user_id FROM film_likes WHERE film_id IN ("
-                    + filmMap.keySet().stream().map(String::valueOf).collect(Collectors.joining(","))
-                    + ")";
-            SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sqlQuery);
-
-            while (rowSet.next()) {
-                Film film = filmMap.get(rowSet.getInt("film_id"));
-                film.getLikedUserIdSet().add(rowSet.getInt("user_id"));
-            }
+            String sqlQuery = "SELECT film_id, user_id FROM film_likes WHERE film_id = ANY(?)";
+            jdbcTemplate.query(sqlQuery, (ResultSet rs) -> {
+                Film film = filmMap.get(rs.getInt("film_id"));
+                film.getLikedUserIdSet().add(rs.getInt("user_id"));
+            }, (Object) filmIds);
         }
     }
 
@@ -302,20 +553,109 @@ public class FilmDbStorage implements FilmStorage {
      * @return список фильмов с самым большим количеством лайков
      */
     public List<Film> getPopularFilms(Integer count) {
-        String sqlQuery = "SELECT f.*, mpa.mpa_rating_name, COUNT(fl.film_id) as cnt " +
-                "FROM films AS f LEFT JOIN film_likes AS fl ON f.film_id = fl.film_id " +
-                "LEFT JOIN mpa_ratings as mpa ON f.mpa_rating_id = mpa.mpa_rating_id " +
+        return getPopularFilms(count, FilmField.ALL);
+    }
+
+    /**
+     * вернуть топ N фильмов по количеству лайков, загрузив только указанные поля.
+     * Лайки загружаются только при запросе всех полей.
+     * Если включен weightLikesByInfluence - фильмы упорядочиваются по сумме оценок влияния лайкнувших пользователей
+     *
+     * @param count  количество фильмов в списке, если не указано или меньше 1 - то берется 10
+     * @param fields набор загружаемых полей
+     * @return список фильмов с самым большим количеством лайков
+     */
+    @Override
+    public List<Film> getPopularFilms(Integer count, Set<FilmField> fields) {
+        String sqlQuery = "SELECT " + getSelectColumns(fields) + ", " + getPopularityColumn() + " as cnt " +
+                "FROM " + getFromTables(fields) + " LEFT JOIN film_likes AS fl ON f.film_id = fl.film_id" + getInfluenceJoin() + " " +
                 "GROUP BY f.film_id " +
                 "ORDER BY cnt DESC " +
                 "LIMIT ?";
 
-        List<Film> filmList = jdbcTemplate.query(sqlQuery, this::mapFunction, count == null || count < 1 ? 10 : count);
+        List<Film> filmList = jdbcTemplate.query(sqlQuery, getMapFunction(fields), count == null || count < 1 ? 10 : count);
 
-        if (!filmList.isEmpty()) {
-            loadGenresToFilms(filmList);
-            loadLikedUsersToFilms(filmList);
-        }
+        loadChildrenToFilms(filmList, fields);
 
         return filmList;
     }
-}
\ No newline at end of file
+
+    /**
+     * вернуть количество лайков топ N фильмов одним запросом к films и film_likes, без полей фильмов,
+     * жанров и списков лайкнувших пользователей. Порядок - как в getPopularFilms
+     *
+     * @param count количество фильмов в списке, если не указано или меньше 1 - то берется 10
+     * @return количество лайков по id фильма в порядке списка популярных фильмов
+     */
+    @Override
+    public Map<Integer, Integer> getPopularFilmLikes(Integer count) {
+        String sqlQuery = "SELECT f.film_id, COUNT(fl.film_id) AS likes, " + getPopularityColumn() + " as cnt " +
+                "FROM films AS f LEFT JOIN film_likes AS fl ON f.film_id = fl.film_id" + getInfluenceJoin() + " " +
+                "GROUP BY f.film_id " +
+                "ORDER BY cnt DESC " +
+                "LIMIT ?";
+
+        Map<Integer, Integer> likes = new LinkedHashMap<>();
+        jdbcTemplate.query(sqlQuery, (ResultSet rs) -> {
+            likes.put(rs.getInt("film_id"), rs.getInt("likes"));
+        }, count == null || count < 1 ? 10 : count);
+        return likes;
+    }
+
+    /**
+     * выражение, по которому упорядочивается список популярных фильмов: количество лайков
+     * или сумма оценок влияния лайкнувших пользователей
+     */
+    private String getPopularityColumn() {
+        return weightLikesByInfluence
+                ? "SUM(CASE WHEN fl.user_id IS NULL THEN 0 ELSE COALESCE(ui.score, 1.0) END)"
+                : "COUNT(fl.film_id)";
+    }
+
+    private String getInfluenceJoin() {
+        return weightLikesByInfluence
+                ? " LEFT JOIN user_influence AS ui ON fl.user_id = ui.user_id"
+                : "";
+    }
+
+    /**
+     * вернуть id фильмов, которые лайкнул пользователь, запрос использует индекс film_likes (user_id, film_id)
+     *
+     * @param userId id пользователя
+     * @return множество id фильмов, пустое если лайков нет или пользователь не найден
+     */
+    @Override
+    public RoaringBitmap getLikedFilmIds(int userId) {
+        String sqlQuery = "SELECT film_id FROM film_likes WHERE user_id = ? ORDER BY film_id";
+        RoaringBitmap filmIds = new RoaringBitmap();
+        jdbcTemplate.query(sqlQuery, (ResultSet rs) -> {
+            filmIds.add(rs.getInt("film_id"));
+        }, userId);
+        filmIds.runOptimize();
+        return filmIds;
+    }
+
+    /**
+     * вернуть id фильмов, которые лайкнули пользователи из списка, одним запросом
+     *
+     * @param userIdList список id пользователей
+     * @return множества id фильмов по id пользователя, для пользователей без лайков - пустые множества
+     */
+    @Override
+    public Map<Integer, RoaringBitmap> getLikedFilmIds(List<Integer> userIdList) {
+        Map<Integer, RoaringBitmap> filmIdsByUser = new HashMap<>();
+        for (Integer userId : userIdList) {
+            filmIdsByUser.put(userId, new RoaringBitmap());
+        }
+
+        if (!userIdList.isEmpty()) {
+            String sqlQuery = "SELECT user_id, film_id FROM film_likes WHERE user_id = ANY(?)";
+            jdbcTemplate.query(sqlQuery, (ResultSet rs) -> {
+                filmIdsByUser.get(rs.getInt("user_id")).add(rs.getInt("film_id"));
+            }, (Object) userIdList.toArray(new Integer[0]));
+        }
+
+        filmIdsByUser.values().forEach(RoaringBitmap::runOptimize);
+        return filmIdsByUser;
+    }
+}
@@ -1,8 +1,12 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import org.roaringbitmap.RoaringBitmap;
 import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.FilmField;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface FilmStorage {
     /**
@@ -13,6 +17,23 @@ public interface FilmStorage {
      */
     Film getById(int id);
 
+    /**
+     * отдать объект с указанным id, загрузив только указанные поля
+     *
+     * @param id     ид фильма
+     * @param fields набор загружаемых полей
+     * @return объект типа Film или null если объект не найден
+     */
+    Film getById(int id, Set<FilmField> fields);
+
+    /**
+     * отдать объекты с указанными в списке id
+     *
+     * @param idList список ид фильмов
+     * @return список объектов типа Film, отсутствующие в хранилище id пропускаются
+     */
+    List<Film> getByIdList(List<Integer> idList);
+
     /**
      * Отдать все хранимые объекты в виде списка
      *
@@ -20,6 +41,14 @@ public interface FilmStorage {
      */
     List<Film> getAll();
 
+    /**
+     * Отдать все хранимые объекты в виде списка, загрузив только указанные поля
+     *
+     * @param fields набор загружаемых полей
+     * @return список объектов типа Film
+     */
+    List<Film> getAll(Set<FilmField> fields);
+
     /**
      * Добавить объект в хранилище, присвоить уникальный id
      *
@@ -64,4 +93,39 @@ public interface FilmStorage {
      * @return список фильмов с самым большим количеством лайков
      */
     List<Film> getPopularFilms(Integer count);
+
+    /**
+     * вернуть топ N фильмов по количеству лайков, загрузив только указанные поля
+     *
+     * @param count  количество фильмов в списке, если не указано или меньше 1 - то берется 10
+     * @param fields набор загружаемых полей
+     * @return список фильмов с самым большим количеством лайков
+     */
+    List<Film> getPopularFilms(Integer count, Set<FilmField> fields);
+
+    /**
+     * вернуть количество лайков топ N фильмов по количеству лайков, не загружая сами фильмы
+     *
+     * @param count количество фильмов в списке, если не указано или меньше 1 - то берется 10
+     * @return количество лайков по id фильма, порядок обхода - порядок списка популярных фильмов
+     */
+    Map<Integer, Integer> getPopularFilmLikes(Integer count);
+
+    /**
+     * вернуть id фильмов, которые лайкнул пользователь.
+     * Возвращаемое множество может быть общим для нескольких вызовов и не должно изменяться
+     *
+     * @param userId id пользователя
+     * @return множество id фильмов, пустое если лайков нет или пользователь не найден
+     */
+    RoaringBitmap getLikedFilmIds(int userId);
+
+    /**
+     * вернуть id фильмов, которые лайкнули пользователи из списка.
+     * Возвращаемые множества могут быть общими для нескольких вызовов и не должны изменяться
+     *
+     * @param userIdList список id пользователей
+     * @return множества id фильмов по id пользователя, для пользователей без лайков - пустые множества
+     */
+    Map<Integer, RoaringBitmap> getLikedFilmIds(List<Integer> userIdList);
 }
\ No newline at end of file
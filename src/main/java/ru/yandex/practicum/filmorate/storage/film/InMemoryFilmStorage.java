@@ -1,7 +1,9 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.FilmField;
 
 import java.util.*;
 
@@ -23,11 +25,39 @@ public class InMemoryFilmStorage implements FilmStorage {
         return films.get(id);
     }
 
+    /**
+     * в памяти объекты хранятся целиком, поэтому набор полей не учитывается
+     */
+    @Override
+    public Film getById(int id, Set<FilmField> fields) {
+        return getById(id);
+    }
+
+    @Override
+    public List<Film> getByIdList(List<Integer> idList) {
+        List<Film> filmList = new ArrayList<>();
+        for (Integer id : idList) {
+            Film film = films.get(id);
+            if (film != null) {
+                filmList.add(film);
+            }
+        }
+        return filmList;
+    }
+
     @Override
     public List<Film> getAll() {
         return new ArrayList<Film>(films.values());
     }
 
+    /**
+     * в памяти объекты хранятся целиком, поэтому набор полей не учитывается
+     */
+    @Override
+    public List<Film> getAll(Set<FilmField> fields) {
+        return getAll();
+    }
+
     @Override
     public Film create(Film film) {
         film.setId(++newId);
@@ -94,4 +124,41 @@ public class InMemoryFilmStorage implements FilmStorage {
 
         return filmsSortedByLikes.subList(0, count);
     }
-}
\ No newline at end of file
+
+    /**
+     * в памяти объекты хранятся целиком, поэтому набор полей не учитывается
+     */
+    @Override
+    public List<Film> getPopularFilms(Integer count, Set<FilmField> fields) {
+        return getPopularFilms(count);
+    }
+
+    @Override
+    public Map<Integer, Integer> getPopularFilmLikes(Integer count) {
+        Map<Integer, Integer> likes = new LinkedHashMap<>();
+        for (Film film : getPopularFilms(count)) {
+            likes.put(film.getId(), film.getLikedUserIdSet().size());
+        }
+        return likes;
+    }
+
+    @Override
+    public RoaringBitmap getLikedFilmIds(int userId) {
+        RoaringBitmap filmIds = new RoaringBitmap();
+        for (Film film : films.values()) {
+            if (film.getLikedUserIdSet().contains(userId)) {
+                filmIds.add(film.getId());
+            }
+        }
+        return filmIds;
+    }
+
+    @Override
+    public Map<Integer, RoaringBitmap> getLikedFilmIds(List<Integer> userIdList) {
+        Map<Integer, RoaringBitmap> filmIdsByUser = new HashMap<>();
+        for (Integer userId : userIdList) {
+            filmIdsByUser.put(userId, getLikedFilmIds(userId));
+        }
+        return filmIdsByUser;
+    }
+}
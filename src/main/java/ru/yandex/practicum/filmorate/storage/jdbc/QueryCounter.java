@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики выполненных SQL-запросов и прочитанных строк результатов: для текущего потока
+ * (то есть текущего HTTP-запроса) и общие.
+ * Значения увеличивает StatementCountingDataSource при каждом выполнении запроса и чтении строки.
+ * Задачи, выполняемые в пуле потоков от имени HTTP-запроса, учитываются в счетчиках вызвавшего потока,
+ * если пул использует QueryCountingTaskDecorator. Так же передается и StatementListener, установленный для потока
+ */
+public final class QueryCounter {
+    private static final ThreadLocal<Counts> THREAD_COUNTS = ThreadLocal.withInitial(Counts::new);
+    private static final AtomicLong TOTAL_COUNT = new AtomicLong();
+    private static final AtomicLong TOTAL_ROW_COUNT = new AtomicLong();
+
+    private QueryCounter() {
+    }
+
+    /**
+     * учесть выполнение одного запроса
+     *
+     * @param sql текст запроса
+     */
+    static void increment(String sql) {
+        Counts counts = THREAD_COUNTS.get();
+        counts.statements.incrementAndGet();
+        TOTAL_COUNT.incrementAndGet();
+        StatementListener listener = counts.listener;
+        if (listener != null) {
+            listener.statementExecuted(sql);
+        }
+    }
+
+    /**
+     * учесть чтение одной строки результата
+     *
+     * @param counts счетчики потока, выполнившего запрос
+     */
+    static void incrementRows(Counts counts) {
+        counts.rows.incrementAndGet();
+        TOTAL_ROW_COUNT.incrementAndGet();
+    }
+
+    /**
+     * количество запросов, выполненных текущим потоком после последнего сброса
+     *
+     * @return количество запросов
+     */
+    public static long getThreadCount() {
+        return THREAD_COUNTS.get().statements.get();
+    }
+
+    /**
+     * количество строк результатов, прочитанных текущим потоком после последнего сброса
+     *
+     * @return количество строк
+     */
+    public static long getThreadRowCount() {
+        return THREAD_COUNTS.get().rows.get();
+    }
+
+    /**
+     * сбросить счетчики текущего потока
+     */
+    public static void resetThreadCount() {
+        Counts counts = THREAD_COUNTS.get();
+        counts.statements.set(0);
+        counts.rows.set(0);
+    }
+
+    /**
+     * установить получателя запросов текущего потока и задач, которые поток поставит в пулы
+     * с QueryCountingTaskDecorator
+     *
+     * @param listener получатель запросов, null - удалить получателя
+     */
+    public static void setThreadListener(StatementListener listener) {
+        THREAD_COUNTS.get().listener = listener;
+    }
+
+    /**
+     * счетчики текущего потока
+     *
+     * @return счетчики
+     */
+    static Counts currentThreadCounts() {
+        return THREAD_COUNTS.get();
+    }
+
+    /**
+     * установить счетчики текущего потока
+     *
+     * @param counts счетчики
+     */
+    static void setThreadCounts(Counts counts) {
+        THREAD_COUNTS.set(counts);
+    }
+
+    /**
+     * общее количество запросов всех потоков с момента запуска
+     *
+     * @return количество запросов
+     */
+    public static long getTotalCount() {
+        return TOTAL_COUNT.get();
+    }
+
+    /**
+     * общее количество прочитанных строк результатов всех потоков с момента запуска
+     *
+     * @return количество строк
+     */
+    public static long getTotalRowCount() {
+        return TOTAL_ROW_COUNT.get();
+    }
+
+    /**
+     * счетчики одного потока
+     */
+    static final class Counts {
+        private final AtomicLong statements = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private volatile StatementListener listener;
+    }
+}
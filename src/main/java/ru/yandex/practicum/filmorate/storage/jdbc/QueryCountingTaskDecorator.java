@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Запросы задачи, выполняемой в пуле потоков, учитываются в счетчиках QueryCounter потока, который ее поставил
+ */
+public class QueryCountingTaskDecorator implements TaskDecorator {
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        QueryCounter.Counts callerCounts = QueryCounter.currentThreadCounts();
+        return () -> {
+            QueryCounter.Counts workerCounts = QueryCounter.currentThreadCounts();
+            QueryCounter.setThreadCounts(callerCounts);
+            try {
+                runnable.run();
+            } finally {
+                QueryCounter.setThreadCounts(workerCounts);
+            }
+        };
+    }
+}
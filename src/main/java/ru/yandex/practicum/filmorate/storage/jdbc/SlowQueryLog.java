@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import ru.yandex.practicum.filmorate.models.SlowQuery;
+import ru.yandex.practicum.filmorate.models.SlowQueryStatistics;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Журнал медленных SQL-запросов: StatementCountingDataSource передает в него каждый запрос с временем выполнения,
+ * запросы дольше порога сохраняются в кольцевой буфер ограниченного размера, старые записи перезаписываются.
+ * Метод хранилища, выполнивший запрос, определяется по стеку вызовов только для медленных запросов
+ */
+public class SlowQueryLog {
+    private static final String STORAGE_PACKAGE = "ru.yandex.practicum.filmorate.storage.";
+    private static final String JDBC_PACKAGE = "ru.yandex.practicum.filmorate.storage.jdbc.";
+    private static final int MAX_PARAMETER_LENGTH = 100;
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*[^()]*\\)");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long thresholdNanos;
+    private final AtomicReferenceArray<SlowQuery> buffer;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param thresholdMillis порог времени выполнения, мс; 0 - сохраняются все запросы
+     * @param capacity        размер кольцевого буфера; 0 - журнал отключен
+     */
+    public SlowQueryLog(long thresholdMillis, int capacity) {
+        if (thresholdMillis < 0 || capacity < 0) {
+            throw new IllegalArgumentException("Порог и размер журнала медленных запросов не могут быть отрицательными");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * true - журнал включен, параметры и время выполнения запросов нужно собирать
+     */
+    public boolean isEnabled() {
+        return buffer.length() > 0;
+    }
+
+    /**
+     * учесть выполненный запрос, запрос сохраняется, если время выполнения не меньше порога.
+     * Значения параметров читаются только для сохраняемых запросов и во время вызова, поэтому вызывающий
+     * может передать свой массив параметров без копирования
+     *
+     * @param sql            текст запроса
+     * @param parameters     значения параметров по индексу параметра (элемент 0 не используется), может быть null
+     * @param parameterCount количество параметров запроса, элементы массива после него не используются
+     * @param durationNanos  время выполнения, нс
+     * @param rows           количество прочитанных или измененных строк
+     */
+    void record(String sql, Object[] parameters, int parameterCount, long durationNanos, long rows) {
+        if (!isEnabled() || durationNanos < thresholdNanos) {
+            return;
+        }
+        SlowQuery query = new SlowQuery(System.currentTimeMillis(), sql, formatParameters(parameters, parameterCount)
+                , durationNanos / 1_000_000.0, rows, findCaller(), Thread.currentThread().getName());
+        long index = sequence.getAndIncrement();
+        buffer.set((int) (index % buffer.length()), query);
+    }
+
+    /**
+     * сохраненные медленные запросы, новые первыми
+     *
+     * @param limit максимальное количество запросов
+     * @return список запросов
+     */
+    public List<SlowQuery> getRecent(int limit) {
+        List<SlowQuery> queries = snapshot();
+        Collections.reverse(queries);
+        return queries.size() > limit ? queries.subList(0, limit) : queries;
+    }
+
+    /**
+     * статистика сохраненных медленных запросов по тексту запроса, упорядоченная по суммарному времени
+     *
+     * @param limit максимальное количество запросов
+     * @return статистика запросов с наибольшим суммарным временем
+     */
+    public List<SlowQueryStatistics> getTop(int limit) {
+        Map<String, List<SlowQuery>> bySql = snapshot().stream()
+                .collect(Collectors.groupingBy(q -> normalize(q.getSql()), LinkedHashMap::new, Collectors.toList()));
+        List<SlowQueryStatistics> statistics = new ArrayList<>();
+        bySql.forEach((sql, queries) -> {
+            double total = 0;
+            double max = 0;
+            long rows = 0;
+            Set<String> callers = new LinkedHashSet<>();
+            for (SlowQuery query : queries) {
+                total += query.getDurationMillis();
+                max = Math.max(max, query.getDurationMillis());
+                rows += query.getRows();
+                if (query.getCaller() != null) {
+                    callers.add(query.getCaller());
+                }
+            }
+            statistics.add(new SlowQueryStatistics(sql, queries.size(), total, total / queries.size(), max, rows
+                    , callers));
+        });
+        return statistics.stream()
+                .sorted(Comparator.comparingDouble(SlowQueryStatistics::getTotalMillis).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * удалить сохраненные запросы
+     */
+    public void clear() {
+        for (int i = 0; i < buffer.length(); i++) {
+            buffer.set(i, null);
+        }
+    }
+
+    /**
+     * сохраненные запросы в порядке выполнения
+     */
+    private List<SlowQuery> snapshot() {
+        List<SlowQuery> queries = new ArrayList<>(buffer.length());
+        // следующая позиция записи содержит самую старую запись
+        long next = sequence.get();
+        for (int i = 0; i < buffer.length(); i++) {
+            SlowQuery query = buffer.get((int) ((next + i) % buffer.length()));
+            if (query != null) {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * текст запроса без значений в списках IN (...) и числовых констант
+     */
+    static String normalize(String sql) {
+        String normalized = IN_LIST.matcher(sql).replaceAll("IN (...)");
+        normalized = NUMBER.matcher(normalized).replaceAll("?");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private static List<String> formatParameters(Object[] parameters, int parameterCount) {
+        if (parameters == null) {
+            return List.of();
+        }
+        List<String> formatted = new ArrayList<>(parameterCount);
+        for (int i = 1; i <= parameterCount; i++) {
+            formatted.add(formatParameter(parameters[i]));
+        }
+        return formatted;
+    }
+
+    private static String formatParameter(Object value) {
+        String text;
+        if (value == null) {
+            text = "NULL";
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            List<String> elements = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                elements.add(String.valueOf(Array.get(value, i)));
+            }
+            text = "[" + String.join(", ", elements) + "]";
+        } else {
+            text = value.toString();
+        }
+        return text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text;
+    }
+
+    /**
+     * первый метод класса хранилища в стеке вызовов
+     */
+    private static String findCaller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(STORAGE_PACKAGE) && !f.getClassName().startsWith(JDBC_PACKAGE))
+                .findFirst()
+                .map(f -> {
+                    String className = f.getClassName();
+                    String methodName = f.getMethodName();
+                    // лямбда внутри метода: lambda$getAll$3 -> getAll
+                    if (methodName.startsWith("lambda$")) {
+                        methodName = methodName.substring("lambda$".length(), methodName.lastIndexOf('$'));
+                    }
+                    return className.substring(className.lastIndexOf('.') + 1) + "." + methodName;
+                })
+                .orElse(null));
+    }
+}
@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Обертка над DataSource, которая учитывает в QueryCounter каждое выполнение SQL-запроса
+ * (методы execute* объектов Statement, PreparedStatement и CallableStatement) и каждую прочитанную строку
+ * результата (ResultSet.next, вернувший true, см. CountingResultSet). Текст выполненного запроса передается
+ * StatementListener потока. Если задан включенный SlowQueryLog (filmorate.slow-query.enabled), для каждого запроса собираются значения параметров и время выполнения:
+ * время самого execute* и вызовов ResultSet.next, без времени обработки строк приложением
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+    private final SlowQueryLog slowQueryLog;
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        this(targetDataSource, null);
+    }
+
+    /**
+     * @param slowQueryLog журнал медленных запросов, null - не используется
+     */
+    public StatementCountingDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog != null && slowQueryLog.isEnabled() ? slowQueryLog : null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader()
+                , new Class<?>[]{Connection.class}
+                , (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    switch (method.getName()) {
+                        case "createStatement":
+                            return wrapStatement((Statement) result, Statement.class, null);
+                        case "prepareStatement":
+                            return wrapStatement((Statement) result, PreparedStatement.class, (String) args[0]);
+                        case "prepareCall":
+                            return wrapStatement((Statement) result, CallableStatement.class, (String) args[0]);
+                        default:
+                            return result;
+                    }
+                });
+    }
+
+    /**
+     * @param preparedSql текст подготовленного запроса, для Statement - null, текст передается в execute*
+     */
+    private Object wrapStatement(Statement statement, Class<? extends Statement> type, String preparedSql) {
+        InvocationHandler handler = slowQueryLog == null
+                ? new StatementHandler(statement, preparedSql)
+                : new ProfilingStatementHandler(statement, preparedSql, slowQueryLog);
+        return Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * подсчет запросов и строк результата
+     */
+    private static class StatementHandler implements InvocationHandler {
+        protected final Statement statement;
+        protected final String preparedSql;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().startsWith("execute")) {
+                QueryCounter.increment(sqlOf(args));
+            }
+            Object result = StatementCountingDataSource.invoke(statement, method, args);
+            if (result instanceof ResultSet) {
+                return wrapResultSet((ResultSet) result);
+            }
+            return result;
+        }
+
+        protected String sqlOf(Object[] args) {
+            return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+        }
+
+        protected ResultSet wrapResultSet(ResultSet resultSet) {
+            // счетчики берутся один раз, чтобы не обращаться к ThreadLocal на каждой строке
+            return new CountingResultSet(resultSet, QueryCounter.currentThreadCounts());
+        }
+    }
+
+    /**
+     * подсчет запросов и строк результата со сбором параметров и времени выполнения для SlowQueryLog.
+     * Запрос на чтение передается в журнал при закрытии результата или statement, запрос на изменение -
+     * сразу после выполнения
+     */
+    private static class ProfilingStatementHandler extends StatementHandler {
+        private final SlowQueryLog slowQueryLog;
+        // значения параметров по индексу, элемент 0 не используется
+        private Object[] parameters;
+        private int maxParameterIndex;
+        // запрос, результат которого еще читается
+        private String pendingSql;
+        private long pendingNanos;
+        private long pendingRows;
+
+        ProfilingStatementHandler(Statement statement, String preparedSql, SlowQueryLog slowQueryLog) {
+            super(statement, preparedSql);
+            this.slowQueryLog = slowQueryLog;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                setParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters = null;
+                maxParameterIndex = 0;
+            } else if (name.equals("close")) {
+                flushPending();
+            }
+            if (!name.startsWith("execute")) {
+                return super.invoke(proxy, method, args);
+            }
+
+            flushPending();
+            String sql = sqlOf(args);
+            QueryCounter.increment(sql);
+            long start = System.nanoTime();
+            Object result = StatementCountingDataSource.invoke(statement, method, args);
+            long duration = System.nanoTime() - start;
+
+            if (result instanceof ResultSet || result == Boolean.TRUE) {
+                pendingSql = sql;
+                pendingNanos = duration;
+                pendingRows = 0;
+                return result instanceof ResultSet ? wrapResultSet((ResultSet) result) : result;
+            }
+            long rows = result == Boolean.FALSE ? statement.getUpdateCount() : updatedRows(result);
+            slowQueryLog.record(sql, parameters, maxParameterIndex, duration, rows);
+            return result;
+        }
+
+        @Override
+        protected ResultSet wrapResultSet(ResultSet resultSet) {
+            return new CountingResultSet(resultSet, QueryCounter.currentThreadCounts()) {
+                @Override
+                public boolean next() throws SQLException {
+                    long start = System.nanoTime();
+                    boolean hasRow = super.next();
+                    pendingNanos += System.nanoTime() - start;
+                    if (hasRow) {
+                        pendingRows++;
+                    }
+                    return hasRow;
+                }
+
+                @Override
+                public void close() throws SQLException {
+                    flushPending();
+                    super.close();
+                }
+            };
+        }
+
+        private void setParameter(int index, Object value) {
+            if (parameters == null) {
+                parameters = new Object[Math.max(index + 1, 8)];
+            } else if (index >= parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index + 1, parameters.length * 2));
+            }
+            parameters[index] = value;
+            maxParameterIndex = Math.max(maxParameterIndex, index);
+        }
+
+        private void flushPending() {
+            if (pendingSql != null) {
+                slowQueryLog.record(pendingSql, parameters, maxParameterIndex, pendingNanos, pendingRows);
+                pendingSql = null;
+            }
+        }
+
+        private static long updatedRows(Object result) {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+/**
+ * Получатель текстов SQL-запросов, выполненных потоком, для которого он установлен в QueryCounter
+ */
+@FunctionalInterface
+public interface StatementListener {
+    /**
+     * запрос выполнен
+     *
+     * @param sql текст запроса, для пакетного выполнения - текст подготовленного запроса
+     */
+    void statementExecuted(String sql);
+}
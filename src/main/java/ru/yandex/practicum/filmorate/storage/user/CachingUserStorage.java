@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.RequestIdentityMap;
+
+import java.util.*;
+
+/**
+ * Хранилище пользователей с кэшированием полных объектов по id поверх userDbStorage.
+ * Каждый метод записи после обращения к БД удаляет из кэша затронутые записи;
+ * удаление ждет завершения параллельной загрузки того же id, поэтому устаревший объект в кэше не остается.
+ * Из кэша отдаются копии объектов, чтобы изменения у вызывающего кода не попадали в кэш
+ */
+@Component
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage userStorage;
+    private final EntityCaches caches;
+    private final RequestIdentityMap identityMap;
+
+    @Autowired
+    public CachingUserStorage(@Qualifier("userDbStorage") UserStorage userStorage
+            , EntityCaches caches
+            , RequestIdentityMap identityMap) {
+        this.userStorage = userStorage;
+        this.caches = caches;
+        this.identityMap = identityMap;
+    }
+
+    /**
+     * отдать объект с указанным id: в рамках HTTP-запроса повторно отдается тот же экземпляр,
+     * иначе - копия из кэша, если объект там есть, или объект из БД
+     *
+     * @param id ид пользователя
+     * @return объект типа User или null если объект не найден
+     */
+    @Override
+    public User getById(int id) {
+        User user = identityMap.get(User.class, id);
+        if (user != null) {
+            return user;
+        }
+
+        if (caches.isEnabled()) {
+            user = copy(caches.users().get(id, userStorage::getById));
+        } else {
+            user = userStorage.getById(id);
+        }
+        return identityMap.put(User.class, id, user);
+    }
+
+    /**
+     * отдать объект с указанным id, загрузив только указанные поля.
+     * Кэшируются только полные объекты
+     *
+     * @param id     ид пользователя
+     * @param fields набор загружаемых полей
+     * @return объект типа User или null если объект не найден
+     */
+    @Override
+    public User getById(int id, Set<UserField> fields) {
+        if (fields.containsAll(UserField.ALL)) {
+            return getById(id);
+        }
+        return userStorage.getById(id, fields);
+    }
+
+    /**
+     * отдать объекты с указанными в списке id в порядке списка.
+     * Уже загруженные в рамках запроса и закэшированные объекты берутся без обращения к БД,
+     * остальные загружаются одним запросом. Загруженные списком объекты в кэш не помещаются:
+     * в отличие от загрузки по одному id такая запись могла бы затереть более новые данные
+     *
+     * @param idList список ид пользователей
+     * @return список объектов типа User, отсутствующие в хранилище id пропускаются
+     */
+    @Override
+    public List<User> getByIdList(List<Integer> idList) {
+        Map<Integer, User> found = new HashMap<>();
+        Set<Integer> missingIdSet = new LinkedHashSet<>();
+
+        for (Integer id : idList) {
+            User user = identityMap.get(User.class, id);
+            if (user == null && caches.isEnabled()) {
+                user = copy(caches.users().getIfPresent(id));
+            }
+
+            if (user != null) {
+                found.put(id, user);
+            } else {
+                missingIdSet.add(id);
+            }
+        }
+
+        if (!missingIdSet.isEmpty()) {
+            for (User user : userStorage.getByIdList(new ArrayList<>(missingIdSet))) {
+                found.put(user.getId(), user);
+            }
+        }
+
+        List<User> userList = new ArrayList<>();
+        for (Integer id : idList) {
+            User user = found.get(id);
+            if (user != null) {
+                userList.add(identityMap.put(User.class, id, user));
+            }
+        }
+        return userList;
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return userStorage.getFriends(userId);
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        return userStorage.getCommonFriends(userId, otherId);
+    }
+
+    @Override
+    public List<Integer> getFollowerIds(int userId) {
+        return userStorage.getFollowerIds(userId);
+    }
+
+    @Override
+    public FriendGraph getFriendGraph() {
+        return userStorage.getFriendGraph();
+    }
+
+    @Override
+    public void saveInfluenceScores(double[] scores) {
+        userStorage.saveInfluenceScores(scores);
+    }
+
+    @Override
+    public Double getInfluenceScore(int userId) {
+        return userStorage.getInfluenceScore(userId);
+    }
+
+    @Override
+    public List<User> getAll() {
+        return userStorage.getAll();
+    }
+
+    @Override
+    public List<User> getAll(Set<UserField> fields) {
+        return userStorage.getAll(fields);
+    }
+
+    @Override
+    public User create(User user) {
+        return userStorage.create(user);
+    }
+
+    @Override
+    public User update(User user) {
+        User updatedUser = userStorage.update(user);
+        caches.users().invalidate(user.getId());
+        identityMap.remove(User.class, user.getId());
+        return updatedUser;
+    }
+
+    /**
+     * Очистить хранилище и кэши, вместе с пользователями каскадно удаляются и лайки фильмов
+     */
+    @Override
+    public void clearAll() {
+        userStorage.clearAll();
+        caches.invalidateAll();
+        identityMap.clear();
+    }
+
+    @Override
+    public void addFriend(User user, int friendId) {
+        userStorage.addFriend(user, friendId);
+        caches.users().invalidate(user.getId());
+        identityMap.remove(User.class, user.getId());
+    }
+
+    @Override
+    public void removeFriend(User user, int friendId) {
+        userStorage.removeFriend(user, friendId);
+        caches.users().invalidate(user.getId());
+        identityMap.remove(User.class, user.getId());
+    }
+
+    /**
+     * копия полного объекта с копией набора друзей
+     *
+     * @param user исходный объект
+     * @return копия или null если исходный объект null
+     */
+    private static User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+
+        User copy = new User(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        copy.setFriendIdSet(new HashSet<>(user.getFriendIdSet()));
+        return copy;
+    }
+}
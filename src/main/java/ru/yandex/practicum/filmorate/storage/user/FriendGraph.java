@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемый снимок направленного графа дружбы (user_id -> friend_id) в формате CSR:
+ * для каждой вершины смежные вершины лежат подряд в общем массиве, начало и конец задаются массивом смещений.
+ * Хранятся исходящие (друзья пользователя) и входящие (у кого пользователь в друзьях) ребра.
+ * Вершины - id от 0 до getVertexCount() - 1, id без пользователя (удаленного или еще не созданного) -
+ * вершина без ребер, для которой isUser() возвращает false
+ */
+public final class FriendGraph {
+    private final int vertexCount;
+    private final RoaringBitmap userIds;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    private FriendGraph(int vertexCount, RoaringBitmap userIds, int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inSources) {
+        this.vertexCount = vertexCount;
+        this.userIds = userIds;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+    }
+
+    /**
+     * построить граф по списку ребер, пользователями считаются все id от 1 до maxUserId
+     *
+     * @param maxUserId максимальный id пользователя
+     * @param from      начала ребер (id пользователей)
+     * @param to        концы ребер (id друзей)
+     * @param edgeCount количество ребер, используются первые edgeCount элементов массивов
+     * @return граф
+     */
+    public static FriendGraph build(int maxUserId, int[] from, int[] to, int edgeCount) {
+        return build(maxUserId, RoaringBitmap.bitmapOfRange(1, maxUserId + 1L), from, to, edgeCount);
+    }
+
+    /**
+     * построить граф по списку ребер для заданного множества пользователей.
+     * Концы ребер тоже считаются пользователями
+     *
+     * @param userIds   id существующих пользователей, не изменяется
+     * @param from      начала ребер (id пользователей)
+     * @param to        концы ребер (id друзей)
+     * @param edgeCount количество ребер, используются первые edgeCount элементов массивов
+     * @return граф
+     */
+    public static FriendGraph build(RoaringBitmap userIds, int[] from, int[] to, int edgeCount) {
+        RoaringBitmap users = userIds.clone();
+        for (int i = 0; i < edgeCount; i++) {
+            users.add(from[i]);
+            users.add(to[i]);
+        }
+        return build(users.isEmpty() ? 0 : users.last(), users, from, to, edgeCount);
+    }
+
+    private static FriendGraph build(int maxUserId, RoaringBitmap userIds, int[] from, int[] to, int edgeCount) {
+        int vertexCount = maxUserId + 1;
+        int[] outOffsets = new int[vertexCount + 1];
+        int[] inOffsets = new int[vertexCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            outOffsets[from[i] + 1]++;
+            inOffsets[to[i] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            outOffsets[v + 1] += outOffsets[v];
+            inOffsets[v + 1] += inOffsets[v];
+        }
+
+        int[] outTargets = new int[edgeCount];
+        int[] inSources = new int[edgeCount];
+        int[] outPositions = Arrays.copyOf(outOffsets, vertexCount);
+        int[] inPositions = Arrays.copyOf(inOffsets, vertexCount);
+        for (int i = 0; i < edgeCount; i++) {
+            outTargets[outPositions[from[i]]++] = to[i];
+            inSources[inPositions[to[i]]++] = from[i];
+        }
+
+        return new FriendGraph(vertexCount, userIds, outOffsets, outTargets, inOffsets, inSources);
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getEdgeCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * количество существующих пользователей, может быть меньше getVertexCount() - 1
+     */
+    public int getUserCount() {
+        return userIds.getCardinality();
+    }
+
+    /**
+     * признак того, что вершина соответствует существующему пользователю
+     */
+    public boolean isUser(int userId) {
+        return userId > 0 && userIds.contains(userId);
+    }
+
+    /**
+     * признак того, что id входит в диапазон вершин графа
+     */
+    public boolean contains(int userId) {
+        return userId >= 0 && userId < vertexCount;
+    }
+
+    public int getOutDegree(int userId) {
+        return outOffsets[userId + 1] - outOffsets[userId];
+    }
+
+    public int getInDegree(int userId) {
+        return inOffsets[userId + 1] - inOffsets[userId];
+    }
+
+    /**
+     * массив концов исходящих ребер, ребра вершины v - элементы с getOutStart(v) по getOutEnd(v) - 1
+     */
+    public int[] getOutTargets() {
+        return outTargets;
+    }
+
+    public int getOutStart(int userId) {
+        return outOffsets[userId];
+    }
+
+    public int getOutEnd(int userId) {
+        return outOffsets[userId + 1];
+    }
+
+    /**
+     * массив начал входящих ребер, ребра вершины v - элементы с getInStart(v) по getInEnd(v) - 1
+     */
+    public int[] getInSources() {
+        return inSources;
+    }
+
+    public int getInStart(int userId) {
+        return inOffsets[userId];
+    }
+
+    public int getInEnd(int userId) {
+        return inOffsets[userId + 1];
+    }
+}
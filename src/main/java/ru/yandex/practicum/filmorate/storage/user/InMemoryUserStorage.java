@@ -1,12 +1,16 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Component
 public class InMemoryUserStorage implements UserStorage {
@@ -15,6 +19,11 @@ public class InMemoryUserStorage implements UserStorage {
      */
     private final Map<Integer, User> users = new HashMap<>();
 
+    /**
+     * оценки влияния пользователей
+     */
+    private final Map<Integer, Double> influenceScores = new HashMap<>();
+
     /**
      * счетчик для генерации уникальных id
      */
@@ -31,14 +40,114 @@ public class InMemoryUserStorage implements UserStorage {
         return users.get(id);
     }
 
+    /**
+     * в памяти объекты хранятся целиком, поэтому набор полей не учитывается
+     */
+    @Override
+    public User getById(int id, Set<UserField> fields) {
+        return getById(id);
+    }
+
     /**
      * отдать объекты с указанными в списке id
      *
      * @param idList список ид пользователей
-     * @return список объектов типа User
+     * @return список объектов типа User в порядке списка, отсутствующие в хранилище id пропускаются
      */
+    @Override
     public List<User> getByIdList(List<Integer> idList) {
-        return null;
+        List<User> userList = new ArrayList<>();
+        for (Integer id : idList) {
+            User user = users.get(id);
+            if (user != null) {
+                userList.add(user);
+            }
+        }
+        return userList;
+    }
+
+    /**
+     * отдать друзей пользователя с указанным id
+     *
+     * @param userId ид пользователя
+     * @return список объектов типа User, пустой если друзей нет или пользователь не найден
+     */
+    @Override
+    public List<User> getFriends(int userId) {
+        User user = users.get(userId);
+        if (user == null) {
+            return List.of();
+        }
+
+        List<User> friends = new ArrayList<>();
+        for (Integer friendId : new TreeSet<>(user.getFriendIdSet())) {
+            User friend = users.get(friendId);
+            if (friend != null) friends.add(friend);
+        }
+        return friends;
+    }
+
+    /**
+     * отдать общих друзей двух пользователей
+     *
+     * @param userId  ид пользователя 1
+     * @param otherId ид пользователя 2
+     * @return список объектов типа User, пустой если общих друзей нет или пользователи не найдены
+     */
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        User other = users.get(otherId);
+        if (other == null) {
+            return List.of();
+        }
+
+        List<User> commonFriends = new ArrayList<>(getFriends(userId));
+        commonFriends.removeIf(friend -> !other.getFriendIdSet().contains(friend.getId()));
+        return commonFriends;
+    }
+
+    @Override
+    public List<Integer> getFollowerIds(int userId) {
+        List<Integer> followerIds = new ArrayList<>();
+        for (User user : users.values()) {
+            if (user.getFriendIdSet().contains(userId)) {
+                followerIds.add(user.getId());
+            }
+        }
+        return followerIds;
+    }
+
+    @Override
+    public FriendGraph getFriendGraph() {
+        RoaringBitmap userIds = new RoaringBitmap();
+        List<Integer> from = new ArrayList<>();
+        List<Integer> to = new ArrayList<>();
+        for (User user : users.values()) {
+            userIds.add(user.getId());
+            for (Integer friendId : user.getFriendIdSet()) {
+                from.add(user.getId());
+                to.add(friendId);
+            }
+        }
+        return FriendGraph.build(userIds
+                , from.stream().mapToInt(Integer::intValue).toArray()
+                , to.stream().mapToInt(Integer::intValue).toArray()
+                , from.size());
+    }
+
+    @Override
+    public void saveInfluenceScores(double[] scores) {
+        influenceScores.clear();
+        for (int userId = 1; userId < scores.length; userId++) {
+            if (users.containsKey(userId)) {
+                influenceScores.put(userId, scores[userId]);
+            }
+        }
+    }
+
+    @Override
+    public Double getInfluenceScore(int userId) {
+        return influenceScores.get(userId);
     }
 
     /**
@@ -51,6 +160,14 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<User>(users.values());
     }
 
+    /**
+     * в памяти объекты хранятся целиком, поэтому набор полей не учитывается
+     */
+    @Override
+    public List<User> getAll(Set<UserField> fields) {
+        return getAll();
+    }
+
     /**
      * создать запись пользователя в хранилище, присвоить уникальный id
      *
@@ -91,6 +208,7 @@ public class InMemoryUserStorage implements UserStorage {
     @Override
     public void clearAll() {
         users.clear();
+        influenceScores.clear();
         newId = 0;
     }
 
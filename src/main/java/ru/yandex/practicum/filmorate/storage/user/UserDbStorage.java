@@ -1,23 +1,37 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
 
+import java.sql.Array;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
+    /**
+     * колонка со списком id друзей пользователя u для запросов к таблице users
+     */
+    private static final String FRIEND_IDS_COLUMN =
+            "(SELECT ARRAY_AGG(uf_ids.friend_id) FROM user_friends AS uf_ids WHERE uf_ids.user_id = u.user_id) AS friend_ids";
+
+    /**
+     * количество записей в одном пакете при сохранении оценок влияния
+     */
+    private static final int INFLUENCE_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     /**
@@ -28,12 +42,25 @@ public class UserDbStorage implements UserStorage {
      */
     @Override
     public User getById(int id) {
-        String sqlQuery = "SELECT * FROM users WHERE user_id = ?";
-        List<User> userList = jdbcTemplate.query(sqlQuery, this::mapFunction, id);
+        return getById(id, UserField.ALL);
+    }
+
+    /**
+     * отдать объект с указанным id, загрузив только указанные поля.
+     * Список друзей загружается только при запросе всех полей
+     *
+     * @param id     ид пользователя
+     * @param fields набор загружаемых полей
+     * @return объект типа User или null если объект не найден
+     */
+    @Override
+    public User getById(int id, Set<UserField> fields) {
+        String sqlQuery = "SELECT " + getSelectColumns(fields) + " FROM users WHERE user_id = ?";
+        List<User> userList = jdbcTemplate.query(sqlQuery, getMapFunction(fields), id);
 
         //если запись была получена - записать в объект User список id друзей
         if (!userList.isEmpty()) {
-            loadFriendsToUsers(userList, true);
+            if (fields.containsAll(UserField.ALL)) loadFriendsToUsers(userList, true);
             return userList.get(0);
         } else {
             return null;
@@ -41,31 +68,139 @@ public class UserDbStorage implements UserStorage {
     }
 
     /**
-     * отдать объекты с указанными в списке id
+     * отдать объекты с указанными в списке id одним запросом, списки id друзей загружаются тем же запросом
      *
      * @param idList список ид пользователей
-     * @return список объектов типа User
+     * @return список объектов типа User в порядке id, отсутствующие в БД id пропускаются
      */
     @Override
     public List<User> getByIdList(List<Integer> idList) {
         if (!idList.isEmpty()) {
-            String sqlQuery = "SELECT * FROM users WHERE user_id IN ("
-                    + idList.stream().map(String::valueOf).collect(Collectors.joining(","))
-                    + ")";
-            List<User> userList = jdbcTemplate.query(sqlQuery
-                    , this::mapFunction);
-
-            //если записи были получены - записать в объекты User списки id друзей
-            if (!userList.isEmpty()) {
-                loadFriendsToUsers(userList, true);
-            }
-
-            return userList;
+            String sqlQuery = "SELECT u.*, " + FRIEND_IDS_COLUMN + " " +
+                    "FROM users AS u " +
+                    "WHERE u.user_id = ANY(?) " +
+                    "ORDER BY u.user_id";
+            return jdbcTemplate.query(sqlQuery, this::mapFunctionWithFriends, (Object) idList.toArray(new Integer[0]));
         } else {
             return List.of();
         }
     }
 
+    /**
+     * отдать друзей пользователя с указанным id одним запросом, списки id друзей найденных пользователей
+     * загружаются тем же запросом
+     *
+     * @param userId ид пользователя
+     * @return список объектов типа User, пустой если друзей нет или пользователь не найден
+     */
+    @Override
+    public List<User> getFriends(int userId) {
+        String sqlQuery = "SELECT u.*, " + FRIEND_IDS_COLUMN + " " +
+                "FROM user_friends AS uf JOIN users AS u ON uf.friend_id = u.user_id " +
+                "WHERE uf.user_id = ? " +
+                "ORDER BY u.user_id";
+        return jdbcTemplate.query(sqlQuery, this::mapFunctionWithFriends, userId);
+    }
+
+    /**
+     * отдать общих друзей двух пользователей одним запросом, списки id друзей найденных пользователей
+     * загружаются тем же запросом
+     *
+     * @param userId  ид пользователя 1
+     * @param otherId ид пользователя 2
+     * @return список объектов типа User, пустой если общих друзей нет или пользователи не найдены
+     */
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        String sqlQuery = "SELECT u.*, " + FRIEND_IDS_COLUMN + " " +
+                "FROM user_friends AS uf1 " +
+                "JOIN user_friends AS uf2 ON uf2.user_id = ? AND uf2.friend_id = uf1.friend_id " +
+                "JOIN users AS u ON uf1.friend_id = u.user_id " +
+                "WHERE uf1.user_id = ? " +
+                "ORDER BY u.user_id";
+        return jdbcTemplate.query(sqlQuery, this::mapFunctionWithFriends, otherId, userId);
+    }
+
+    /**
+     * отдать id пользователей, у которых указанный пользователь в списке друзей,
+     * запрос использует индекс user_friends (friend_id, user_id)
+     *
+     * @param userId ид пользователя
+     * @return список id пользователей, пустой если таких нет
+     */
+    @Override
+    public List<Integer> getFollowerIds(int userId) {
+        String sqlQuery = "SELECT user_id FROM user_friends WHERE friend_id = ?";
+        return jdbcTemplate.queryForList(sqlQuery, Integer.class, userId);
+    }
+
+    /**
+     * построить снимок графа дружбы всех пользователей, ребра читаются одним запросом
+     *
+     * @return граф дружбы
+     */
+    @Override
+    public FriendGraph getFriendGraph() {
+        RoaringBitmap userIds = new RoaringBitmap();
+        jdbcTemplate.query("SELECT user_id FROM users", (ResultSet rs) -> userIds.add(rs.getInt("user_id")));
+        Integer edgeCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_friends", Integer.class);
+
+        //количество ребер могло вырасти между запросами, массивы при необходимости расширяются;
+        //пользователи, добавленные после первого запроса, попадут в граф как концы ребер
+        int[][] edges = {new int[edgeCount], new int[edgeCount]};
+        int[] size = {0};
+        jdbcTemplate.query("SELECT user_id, friend_id FROM user_friends", (ResultSet rs) -> {
+            if (size[0] == edges[0].length) {
+                edges[0] = Arrays.copyOf(edges[0], size[0] * 2 + 16);
+                edges[1] = Arrays.copyOf(edges[1], size[0] * 2 + 16);
+            }
+            edges[0][size[0]] = rs.getInt("user_id");
+            edges[1][size[0]] = rs.getInt("friend_id");
+            size[0]++;
+        });
+
+        return FriendGraph.build(userIds, edges[0], edges[1], size[0]);
+    }
+
+    /**
+     * заменить сохраненные оценки влияния пользователей в таблице user_influence.
+     * Замена выполняется в одной транзакции, читающие запросы видят либо прежние, либо новые оценки
+     *
+     * @param scores оценки влияния, индекс - id пользователя; id без пользователя пропускаются
+     */
+    @Override
+    @Transactional
+    public void saveInfluenceScores(double[] scores) {
+        jdbcTemplate.update("DELETE FROM user_influence");
+
+        String sqlQuery = "INSERT INTO user_influence (user_id, score) " +
+                "SELECT user_id, ? FROM users WHERE user_id = ?";
+        List<Object[]> batch = new ArrayList<>(INFLUENCE_BATCH_SIZE);
+        for (int userId = 1; userId < scores.length; userId++) {
+            batch.add(new Object[]{scores[userId], userId});
+            if (batch.size() == INFLUENCE_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sqlQuery, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sqlQuery, batch);
+        }
+    }
+
+    /**
+     * отдать сохраненную оценку влияния пользователя
+     *
+     * @param userId ид пользователя
+     * @return оценка влияния или null если оценка не рассчитана
+     */
+    @Override
+    public Double getInfluenceScore(int userId) {
+        List<Double> scores = jdbcTemplate.queryForList("SELECT score FROM user_influence WHERE user_id = ?"
+                , Double.class, userId);
+        return scores.isEmpty() ? null : scores.get(0);
+    }
+
     /**
      * Отдать все хранимые объекты в виде списка
      *
@@ -73,17 +208,68 @@ public class UserDbStorage implements UserStorage {
      */
     @Override
     public List<User> getAll() {
-        String sqlQuery = "SELECT * FROM users ORDER BY user_id";
-        List<User> userList = jdbcTemplate.query(sqlQuery, this::mapFunction);
+        return getAll(UserField.ALL);
+    }
+
+    /**
+     * Отдать все хранимые объекты в виде списка, загрузив только указанные поля.
+     * Списки друзей загружаются только при запросе всех полей
+     *
+     * @param fields набор загружаемых полей
+     * @return список объектов типа User
+     */
+    @Override
+    public List<User> getAll(Set<UserField> fields) {
+        String sqlQuery = "SELECT " + getSelectColumns(fields) + " FROM users ORDER BY user_id";
+        List<User> userList = jdbcTemplate.query(sqlQuery, getMapFunction(fields));
 
         //если пользователи были загружены - также загрузить их друзей
-        if (!userList.isEmpty()) {
+        if (!userList.isEmpty() && fields.containsAll(UserField.ALL)) {
             loadFriendsToUsers(userList, true);
         }
 
         return userList;
     }
 
+    /**
+     * метод формирует список колонок запроса к таблице users для указанного набора полей
+     *
+     * @param fields набор загружаемых полей
+     * @return список колонок через запятую
+     */
+    private String getSelectColumns(Set<UserField> fields) {
+        StringJoiner columns = new StringJoiner(", ");
+        columns.add("user_id");
+        if (fields.contains(UserField.EMAIL)) columns.add("email");
+        if (fields.contains(UserField.LOGIN)) columns.add("login");
+        if (fields.contains(UserField.NAME)) columns.add("name");
+        if (fields.contains(UserField.BIRTHDAY)) columns.add("birthday");
+        return columns.toString();
+    }
+
+    /**
+     * метод возвращает функцию для маппинга данных запроса из таблицы users в объект с указанным набором полей,
+     * незагружаемые поля остаются равными null
+     *
+     * @param fields набор загружаемых полей
+     * @return функция маппинга
+     */
+    private RowMapper<User> getMapFunction(Set<UserField> fields) {
+        if (fields.containsAll(UserField.ALL)) {
+            return this::mapFunction;
+        }
+
+        return (ResultSet rs, int rowNum) -> {
+            User user = new User();
+            user.setId(rs.getInt("user_id"));
+            user.setEmail(fields.contains(UserField.EMAIL) ? rs.getString("email") : null);
+            user.setLogin(fields.contains(UserField.LOGIN) ? rs.getString("login") : null);
+            user.setName(fields.contains(UserField.NAME) ? rs.getString("name") : null);
+            user.setBirthday(fields.contains(UserField.BIRTHDAY) ? rs.getDate("birthday").toLocalDate() : null);
+            return user;
+        };
+    }
+
     /**
      * метод для маппинга данных запроса из таблицы users в объект
      *
@@ -99,6 +285,24 @@ public class UserDbStorage implements UserStorage {
                 , rs.getDate("birthday").toLocalDate());
     }
 
+    /**
+     * метод для маппинга данных запроса из таблицы users с агрегированной колонкой friend_ids в объект
+     *
+     * @param rs данные запроса
+     * @return объект
+     * @throws SQLException
+     */
+    private User mapFunctionWithFriends(ResultSet rs, int rowNum) throws SQLException {
+        User user = mapFunction(rs, rowNum);
+        Array friendIds = rs.getArray("friend_ids");
+        if (friendIds != null) {
+            for (Object friendId : (Object[]) friendIds.getArray()) {
+                user.getFriendIdSet().add((Integer) friendId);
+            }
+        }
+        return user;
+    }
+
     /**
      * метод возвращает список id друзей пользователя с указанным id
      *
@@ -119,21 +323,21 @@ public class UserDbStorage implements UserStorage {
      * @param addUnconfirmed если true - то будут записаны все записи, иначе - только подтвержденные (confirmed = true)
      */
     private void loadFriendsToUsers(List<User> userList, boolean addUnconfirmed) {
-        Map<Integer, User> usersMap = new HashMap<>();
+        Map<Integer, User> usersMap = new HashMap<>(userList.size() * 4 / 3 + 1);
+        Integer[] userIds = new Integer[userList.size()];
 
-        for (User user : userList) {
+        for (int i = 0; i < userIds.length; i++) {
+            User user = userList.get(i);
             usersMap.put(user.getId(), user);
+            userIds[i] = user.getId();
         }
 
-        String sqlQuery = "SELECT user_id, friend_id FROM user_friends WHERE user_id IN ("
-                + usersMap.keySet().stream().map(String::valueOf).collect(Collectors.joining(","))
-                + ") "
-                + (addUnconfirmed ? "" : " AND confirmed = true ");
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sqlQuery);
-        while (rowSet.next()) {
-            User user = usersMap.get(rowSet.getInt("user_id"));
-            user.getFriendIdSet().add(rowSet.getInt("friend_id"));
-        }
+        String sqlQuery = "SELECT user_id, friend_id FROM user_friends WHERE user_id = ANY(?)"
+                + (addUnconfirmed ? "" : " AND confirmed = true");
+        jdbcTemplate.query(sqlQuery, (ResultSet rs) -> {
+            User user = usersMap.get(rs.getInt("user_id"));
+            user.getFriendIdSet().add(rs.getInt("friend_id"));
+        }, (Object) userIds);
     }
 
     /**
@@ -164,7 +368,8 @@ public class UserDbStorage implements UserStorage {
 
     /**
      * Обновить объект в БД в таблице users, поиск обновляемого объекта по user.id
-     * Список друзей этим методом не обновляется
+     * Список друзей этим методом не обновляется.
+     * Наличие пользователя определяется по количеству обновленных строк, без предварительной загрузки
      *
      * @param user обновляемый объект
      * @return обновленный объект или null если объект по id не найден
@@ -172,25 +377,23 @@ public class UserDbStorage implements UserStorage {
     @Override
     public User update(User user) {
         Integer userId = user.getId();
+        if (userId <= 0) {
+            return null;
+        }
 
-        //проверить есть ли такой пользователь в БД
-        if (userId > 0 && getById(userId) != null) {
-            //пользователь есть, обновляем
-            String sqlQuery = "UPDATE users " +
-                    "SET email = ?, login = ?, name = ?, birthday = ? " +
-                    "WHERE user_id = ?";
+        String sqlQuery = "UPDATE users " +
+                "SET email = ?, login = ?, name = ?, birthday = ? " +
+                "WHERE user_id = ?";
 
-            jdbcTemplate.update(sqlQuery
-                    , user.getEmail()
-                    , user.getLogin()
-                    , user.getName()
-                    , user.getBirthday().toString()
-                    , user.getId());
+        int updatedRows = jdbcTemplate.update(sqlQuery
+                , user.getEmail()
+                , user.getLogin()
+                , user.getName()
+                , user.getBirthday().toString()
+                , user.getId());
 
-            return user;
-        } else {
-            return null;
-        }
+        //пользователя с таким id в БД нет
+        return updatedRows > 0 ? user : null;
     }
 
     /**
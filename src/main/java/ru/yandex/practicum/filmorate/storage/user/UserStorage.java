@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
 
 import java.util.List;
+import java.util.Set;
 
 public interface UserStorage {
     /**
@@ -13,6 +15,15 @@ public interface UserStorage {
      */
     User getById(int id);
 
+    /**
+     * отдать объект с указанным id, загрузив только указанные поля
+     *
+     * @param id     ид пользователя
+     * @param fields набор загружаемых полей
+     * @return объект типа User или null если объект не найден
+     */
+    User getById(int id, Set<UserField> fields);
+
     /**
      * отдать объекты с указанными в списке id
      *
@@ -21,6 +32,53 @@ public interface UserStorage {
      */
     List<User> getByIdList(List<Integer> idList);
 
+    /**
+     * отдать друзей пользователя с указанным id
+     *
+     * @param userId ид пользователя
+     * @return список объектов типа User, пустой если друзей нет или пользователь не найден
+     */
+    List<User> getFriends(int userId);
+
+    /**
+     * отдать общих друзей двух пользователей
+     *
+     * @param userId  ид пользователя 1
+     * @param otherId ид пользователя 2
+     * @return список объектов типа User, пустой если общих друзей нет или пользователи не найдены
+     */
+    List<User> getCommonFriends(int userId, int otherId);
+
+    /**
+     * отдать id пользователей, у которых указанный пользователь в списке друзей
+     *
+     * @param userId ид пользователя
+     * @return список id пользователей, пустой если таких нет
+     */
+    List<Integer> getFollowerIds(int userId);
+
+    /**
+     * построить снимок графа дружбы всех пользователей
+     *
+     * @return граф дружбы
+     */
+    FriendGraph getFriendGraph();
+
+    /**
+     * заменить сохраненные оценки влияния пользователей
+     *
+     * @param scores оценки влияния, индекс - id пользователя; id без пользователя пропускаются
+     */
+    void saveInfluenceScores(double[] scores);
+
+    /**
+     * отдать сохраненную оценку влияния пользователя
+     *
+     * @param userId ид пользователя
+     * @return оценка влияния или null если оценка не рассчитана
+     */
+    Double getInfluenceScore(int userId);
+
     /**
      * Отдать все хранимые объекты в виде списка
      *
@@ -28,6 +86,14 @@ public interface UserStorage {
      */
     List<User> getAll();
 
+    /**
+     * Отдать все хранимые объекты в виде списка, загрузив только указанные поля
+     *
+     * @param fields набор загружаемых полей
+     * @return список объектов типа User
+     */
+    List<User> getAll(Set<UserField> fields);
+
     /**
      * Добавить объект в хранилище, присвоить уникальный id
      *
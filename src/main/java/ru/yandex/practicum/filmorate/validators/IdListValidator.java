@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.validators;
+
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+
+import java.util.List;
+
+public class IdListValidator {
+    /**
+     * максимальное количество id в одном запросе списка объектов
+     */
+    public static final int MAX_ID_LIST_SIZE = 100;
+
+    /**
+     * метод служит для проверки списка id, переданного в параметре запроса
+     *
+     * @param idList список id
+     * @throws ParameterValidationException если в списке больше MAX_ID_LIST_SIZE элементов или есть пустые элементы
+     */
+    public static void validate(List<Integer> idList) throws ParameterValidationException {
+        if (idList.size() > MAX_ID_LIST_SIZE) {
+            throw new ParameterValidationException("Количество запрашиваемых id не может быть больше " + MAX_ID_LIST_SIZE);
+        }
+        if (idList.contains(null)) {
+            throw new ParameterValidationException("Список id не может содержать пустые элементы");
+        }
+    }
+}
@@ -56,3 +56,14 @@ CREATE TABLE IF NOT EXISTS PUBLIC.FILM_GENRES (
     CONSTRAINT FILM_GENRES_FK FOREIGN KEY (FILM_ID) REFERENCES PUBLIC.FILMS(FILM_ID) ON DELETE CASCADE,
     CONSTRAINT FILM_GENRES_FK2 FOREIGN KEY (GENRE_ID) REFERENCES PUBLIC.GENRES(GENRE_ID) ON DELETE CASCADE
 );
+
+CREATE TABLE IF NOT EXISTS PUBLIC.USER_INFLUENCE (
+    USER_ID INTEGER NOT NULL,
+    SCORE DOUBLE PRECISION NOT NULL,
+    CONSTRAINT USER_INFLUENCE_PK PRIMARY KEY (USER_ID),
+    CONSTRAINT USER_INFLUENCE_FK FOREIGN KEY (USER_ID) REFERENCES PUBLIC.USERS(USER_ID) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS PUBLIC.USER_FRIENDS_FRIEND_IDX ON PUBLIC.USER_FRIENDS (FRIEND_ID, USER_ID);
+CREATE INDEX IF NOT EXISTS PUBLIC.FILM_LIKES_USER_IDX ON PUBLIC.FILM_LIKES (USER_ID, FILM_ID);
+CREATE INDEX IF NOT EXISTS PUBLIC.FILM_GENRES_GENRE_IDX ON PUBLIC.FILM_GENRES (GENRE_ID, FILM_ID);
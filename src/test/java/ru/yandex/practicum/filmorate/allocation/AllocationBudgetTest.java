@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.allocation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.Genre;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.dictionary.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Бюджеты выделения памяти на вызов для основных операций чтения хранилищ и сервисов.
+ * Бюджет задан с запасом около 30% к измеренному значению: тест ловит появление лишних объектов на строку
+ * результата, а не колебания в пределах нескольких процентов
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+class AllocationBudgetTest {
+    private static final int FILMS = 20;
+    private static final int USERS = 10;
+
+    @Autowired
+    private FilmDbStorage filmDbStorage;
+    @Autowired
+    private UserDbStorage userDbStorage;
+    @Autowired
+    private CachingFilmStorage filmStorage;
+    @Autowired
+    private CachingUserStorage userStorage;
+    @Autowired
+    private GenresDbStorage genresStorage;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Integer> filmIds;
+    private List<Integer> userIds;
+
+    @BeforeEach
+    void fillStorage() {
+        assumeTrue(AllocationMeter.isSupported(), "учет выделенной памяти по потокам не поддерживается");
+        filmIds = new ArrayList<>();
+        userIds = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            userIds.add(userStorage.create(new User("u" + i + "@mail.ru", "u" + i, "User " + i
+                    , LocalDate.of(1990, 1, i))).getId());
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            List<Genre> genres = new ArrayList<>(List.of(new Genre(1 + i % 6), new Genre(1 + (i + 2) % 6)));
+            Film film = filmStorage.create(new Film("Film " + i, "Description " + i, LocalDate.of(2000, 1, i)
+                    , 90 + i, new MpaRating(1 + i % 5), genres));
+            filmIds.add(film.getId());
+            for (int j = 0; j < i % USERS; j++) {
+                filmStorage.addLike(film, userIds.get(j));
+            }
+        }
+        for (int i = 1; i < USERS; i++) {
+            userStorage.addFriend(userStorage.getById(userIds.get(0)), userIds.get(i));
+            userStorage.addFriend(userStorage.getById(userIds.get(i)), userIds.get(0));
+        }
+    }
+
+    @AfterEach
+    void resetStorage() {
+        filmStorage.clearAll();
+        userStorage.clearAll();
+    }
+
+    @Test
+    void filmStorageReads() {
+        int filmId = filmIds.get(0);
+        FilmDbStorage singleQuery = new FilmDbStorage(jdbcTemplate, true);
+        List<Integer> idList = filmIds.subList(0, 10);
+
+        AllocationMeter.assertAtMost("FilmDbStorage.getById", 75_000, () -> filmDbStorage.getById(filmId));
+        AllocationMeter.assertAtMost("FilmDbStorage.getAll", 140_000, () -> filmDbStorage.getAll());
+        AllocationMeter.assertAtMost("FilmDbStorage.getAll, один запрос", 220_000, () -> singleQuery.getAll());
+        AllocationMeter.assertAtMost("FilmDbStorage.getByIdList", 110_000, () -> filmDbStorage.getByIdList(idList));
+        AllocationMeter.assertAtMost("FilmDbStorage.getPopularFilms", 140_000, () -> filmDbStorage.getPopularFilms(10));
+        AllocationMeter.assertAtMost("FilmDbStorage.getLikedFilmIds", 40_000, () -> filmDbStorage.getLikedFilmIds(userIds));
+    }
+
+    @Test
+    void userStorageReads() {
+        int userId = userIds.get(0);
+        AllocationMeter.assertAtMost("UserDbStorage.getById", 40_000, () -> userDbStorage.getById(userId));
+        AllocationMeter.assertAtMost("UserDbStorage.getByIdList", 60_000, () -> userDbStorage.getByIdList(userIds));
+        AllocationMeter.assertAtMost("UserDbStorage.getFriends", 60_000, () -> userDbStorage.getFriends(userId));
+        AllocationMeter.assertAtMost("GenresDbStorage.getAll", 20_000, () -> genresStorage.getAll());
+    }
+
+    /**
+     * операции сервисов выполняются через кэширующие хранилища, как в обработчиках запросов
+     */
+    @Test
+    void serviceReads() {
+        int filmId = filmIds.get(0);
+        int userId = userIds.get(0);
+        AllocationMeter.assertAtMost("FilmService.getById", 4_000, () -> filmService.getById(filmId));
+        AllocationMeter.assertAtMost("FilmService.getPopularFilms", 140_000, () -> filmService.getPopularFilms(10));
+        AllocationMeter.assertAtMost("UserService.getUserFriends", 60_000, () -> userService.getUserFriends(userId));
+    }
+
+    /**
+     * жанры и рейтинги MPA одинаковых элементов справочника в разных фильмах - один и тот же объект
+     */
+    @Test
+    void dictionaryValuesAreShared() {
+        List<Film> films = filmDbStorage.getAll();
+        List<Film> sameMpa = films.stream()
+                .filter(f -> f.getMpa().getId() == 1)
+                .collect(Collectors.toList());
+        assertTrue(sameMpa.size() > 1);
+        assertSame(sameMpa.get(0).getMpa(), sameMpa.get(1).getMpa());
+        assertEquals("G", sameMpa.get(0).getMpa().getName());
+
+        List<Genre> comedies = IntStream.range(0, films.size())
+                .mapToObj(i -> films.get(i).getGenres())
+                .flatMap(List::stream)
+                .filter(g -> g.getId() == 1)
+                .collect(Collectors.toList());
+        assertTrue(comedies.size() > 1);
+        assertSame(comedies.get(0), comedies.get(1));
+        assertSame(comedies.get(0), genresStorage.getById(1));
+    }
+}
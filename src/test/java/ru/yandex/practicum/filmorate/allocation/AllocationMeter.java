@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.allocation;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Измерение объема памяти, выделяемой одним вызовом операции в текущем потоке, по счетчику
+ * com.sun.management.ThreadMXBean.getThreadAllocatedBytes. Операция сначала выполняется для прогрева JIT,
+ * затем каждый вызов измеряется отдельно и берется медиана, поэтому редкие выделения (расширение буферов,
+ * загрузка классов) на результат не влияют. Собственные выделения счетчика вычитаются
+ */
+public final class AllocationMeter {
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+    private static final int WARMUP_CALLS = 500;
+    private static final int MEASURED_CALLS = 201;
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * true - JVM поддерживает учет выделенной памяти по потокам
+     */
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN != null && THREAD_MX_BEAN.isThreadAllocatedMemorySupported()
+                && THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * медиана объема памяти, выделенной одним вызовом операции
+     *
+     * @param operation измеряемая операция
+     * @return байт на вызов
+     */
+    public static long bytesPerCall(Runnable operation) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            operation.run();
+        }
+        long overhead = median(() -> {
+        });
+        return Math.max(median(operation) - overhead, 0);
+    }
+
+    /**
+     * проверить, что вызов операции выделяет не больше указанного объема памяти
+     *
+     * @param name      название операции для сообщения об ошибке
+     * @param maxBytes  допустимый объем памяти на вызов, байт
+     * @param operation измеряемая операция
+     * @return измеренный объем памяти на вызов, байт
+     */
+    public static long assertAtMost(String name, long maxBytes, Runnable operation) {
+        long bytes = bytesPerCall(operation);
+        assertTrue(bytes <= maxBytes, name + ": выделено " + bytes + " байт на вызов, допустимо " + maxBytes);
+        return bytes;
+    }
+
+    private static long median(Runnable operation) {
+        long threadId = Thread.currentThread().getId();
+        long[] samples = new long[MEASURED_CALLS];
+        for (int i = 0; i < samples.length; i++) {
+            long before = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+            operation.run();
+            samples[i] = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - before;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private @Qualifier("cachingUserStorage") UserStorage userStorage;
+
+    @Autowired
+    private @Qualifier("cachingFilmStorage") FilmStorage filmStorage;
+
+    @AfterEach
+    private void resetStorage() {
+        userStorage.clearAll();
+        filmStorage.clearAll();
+    }
+
+    /**
+     * вызовы хранилищ и сервисов учитываются таймерами, SQL-запросы и строки - по шаблону пути эндпоинта,
+     * для кэшей и пула соединений создаются метрики
+     */
+    @Test
+    void requestIsMeasured() throws Exception {
+        //реестр общий для всех тестов контекста, поэтому проверяется прирост счетчика за запрос
+        long rowsBefore = rowsSummaryCount();
+        User user = new User("aa@mm.ru", "login", "name", LocalDate.of(2000, 1, 1));
+        String content = mvc.perform(post("/users")
+                        .content(objectMapper.writeValueAsString(user))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        int id = objectMapper.readValue(content, User.class).getId();
+        mvc.perform(get("/users/" + id)).andExpect(status().isOk());
+
+        assertTrue(registry.get("filmorate.service").tags("class", "UserService", "method", "getById")
+                .timer().count() > 0);
+        assertTrue(registry.get("filmorate.storage").tags("class", "UserDbStorage", "method", "getById")
+                .timer().count() > 0);
+        assertTrue(registry.get("filmorate.http.sql.statements").tags("method", "POST", "uri", "/users")
+                .summary().totalAmount() > 0);
+        assertEquals(1, rowsSummaryCount() - rowsBefore);
+        assertNotNull(registry.get("cache.gets").tags("cache", "users", "result", "miss").functionCounter());
+        assertNotNull(registry.get("filmorate.popular.age").gauge());
+        assertNotNull(registry.find("hikaricp.connections.acquire").timer());
+    }
+
+    private long rowsSummaryCount() {
+        DistributionSummary rows = registry.find("filmorate.http.sql.rows")
+                .tags("method", "GET", "uri", "/users/{userId}")
+                .summary();
+        return rows == null ? 0 : rows.count();
+    }
+}
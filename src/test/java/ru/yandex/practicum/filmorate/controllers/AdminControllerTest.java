@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static ru.yandex.practicum.filmorate.config.AdminAccessFilter.TOKEN_HEADER;
+
+@SpringBootTest(properties = "filmorate.admin.token=" + AdminControllerTest.TOKEN)
+@AutoConfigureMockMvc
+class AdminControllerTest {
+    static final String TOKEN = "test-admin-token";
+
+    @Autowired
+    private MockMvc mvc;
+
+    //без токена или с неверным токеном эндпоинты /admin недоступны
+    //эндпоинты GET /admin/caches, POST /admin/jfr/start, GET /admin/heap/histogram
+    @Test
+    void adminEndpointsRequireToken() throws Exception {
+        mvc.perform(get("/admin/caches"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.error").value("forbidden"));
+        mvc.perform(post("/admin/jfr/start").header(TOKEN_HEADER, "wrong"))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/admin/heap/histogram?live=true").header(TOKEN_HEADER, ""))
+                .andExpect(status().isForbidden());
+        mvc.perform(admin(get("/admin/caches")))
+                .andExpect(status().isOk());
+    }
+
+    //неположительное количество записей - ошибка параметра запроса
+    //эндпоинты GET /admin/slow-queries, GET /admin/slow-queries/top
+    @Test
+    void slowQueriesWithNonPositiveLimit() throws Exception {
+        mvc.perform(admin(get("/admin/slow-queries?limit=0")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("error"));
+        mvc.perform(admin(get("/admin/slow-queries/top?count=-1")))
+                .andExpect(status().isBadRequest());
+        mvc.perform(admin(get("/admin/slow-queries?limit=1")))
+                .andExpect(status().isOk());
+    }
+
+    //файл записи JFR, которая не запускалась, - конфликт состояния записи
+    //эндпоинт GET /admin/jfr/file
+    @Test
+    void recordingFileWithoutRecording() throws Exception {
+        mvc.perform(admin(get("/admin/jfr/file")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("error"));
+    }
+
+    private static MockHttpServletRequestBuilder admin(MockHttpServletRequestBuilder request) {
+        return request.header(TOKEN_HEADER, TOKEN);
+    }
+}
@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -13,13 +16,18 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.Genre;
 import ru.yandex.practicum.filmorate.models.MpaRating;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryRecorder;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -34,7 +42,10 @@ class FilmControllerTest {
     private ObjectMapper objectMapper;
 
     @Autowired
-    private @Qualifier("filmDbStorage") FilmStorage filmStorage;
+    private @Qualifier("cachingFilmStorage") FilmStorage filmStorage;
+
+    @Autowired
+    private EntityCaches caches;
 
     @AfterEach
     private void resetStorage() {
@@ -60,6 +71,150 @@ class FilmControllerTest {
                 .andReturn();
     }
 
+    //получить список объектов с ограниченным набором полей
+    // эндпоинт GET /films?fields=
+    @Test
+    void getAllFilmsWithFields() throws Exception {
+        Film film = new Film("a", "b", LocalDate.now().minusYears(1), 99, new MpaRating(1, "G"), new ArrayList<>());
+        mvc.perform(post("/films")
+                        .content(objectMapper.writeValueAsString(film))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        mvc.perform(get("/films?fields=name,mpa")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").exists())
+                .andExpect(jsonPath("$[0].name").value("a"))
+                .andExpect(jsonPath("$[0].mpa.name").value("G"))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].genres").doesNotExist());
+    }
+
+    //получить фильмы по списку id в порядке списка, ненайденные id - в заголовке
+    // эндпоинт GET /films?ids=
+    @Test
+    void getFilmsByIds() throws Exception {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Film film = new Film("a" + i, "b", LocalDate.now().minusYears(1), 99, new MpaRating(1, "G"), new ArrayList<>());
+            ResultActions resultActions = mvc.perform(post("/films")
+                            .content(objectMapper.writeValueAsString(film))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isCreated());
+            films.add(objectMapper.readValue(resultActions.andReturn().getResponse().getContentAsString(), Film.class));
+        }
+
+        mvc.perform(get("/films?ids=" + films.get(1).getId() + ",9999," + films.get(0).getId())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Missing-Ids", "9999"))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(films.get(1), films.get(0))), true));
+    }
+
+    //пустой элемент в списке id
+    // эндпоинт GET /films?ids=
+    @Test
+    void getFilmsByIdsWithEmptyElement() throws Exception {
+        mvc.perform(get("/films?ids=1,,2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("error"));
+    }
+
+    //запросить неизвестное поле
+    // эндпоинт GET /films?fields=
+    @Test
+    void getAllFilmsWithUnknownField() throws Exception {
+        mvc.perform(get("/films?fields=name,unknown")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("error"));
+    }
+
+    //сохранить объект в формате CBOR и получить его обратно в формате Smile
+    //эндпоинты POST /films, GET /films/{id}
+    @Test
+    void createAndGetInBinaryFormats() throws Exception {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory())
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory())
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        Film film = new Film("a", "b".repeat(200), LocalDate.now().minusYears(1), 99, new MpaRating(1, "G"), new ArrayList<>());
+        ResultActions resultActions = mvc.perform(post("/films")
+                        .content(cborMapper.writeValueAsBytes(film))
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+
+        Film createdFilm = cborMapper.readValue(resultActions.andReturn().getResponse().getContentAsByteArray(), Film.class);
+        film.setId(createdFilm.getId());
+        assertEquals(film, createdFilm);
+
+        byte[] smileContent = mvc.perform(get("/films/" + film.getId())
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] jsonContent = mvc.perform(get("/films/" + film.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(film, smileMapper.readValue(smileContent, Film.class));
+        assertTrue(smileContent.length < jsonContent.length);
+    }
+
+    //подписаться на изменения списка популярных фильмов, первым событием приходит текущий список
+    //эндпоинт GET /films/popular/stream
+    @Test
+    void streamPopularFilms() throws Exception {
+        Film film = new Film("a", "b", LocalDate.now().minusYears(1), 99, new MpaRating(1, "G"), new ArrayList<>());
+        ResultActions resultActions = mvc.perform(post("/films")
+                        .content(objectMapper.writeValueAsString(film))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+        Integer id = JsonPath.read(resultActions.andReturn().getResponse().getContentAsString(), "$.id");
+
+        MvcResult mvcResult = mvc.perform(get("/films/popular/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String content = mvcResult.getResponse().getContentAsString();
+        assertTrue(content.contains("event:popular"));
+        assertTrue(content.contains("\"filmId\":" + id + ",\"rank\":1,\"likes\":0"));
+    }
+
+    //количество SQL-запросов эндпоинтов чтения не зависит от количества фильмов и жанров (нет N+1)
+    //эндпоинты GET /films, GET /films/{id}, GET /films?ids=, GET /films/popular
+    @Test
+    void readQueryBudgets() throws Exception {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            films.add(filmStorage.create(new Film("f" + i, "d", LocalDate.now().minusYears(1), 90, new MpaRating(1)
+                    , new ArrayList<>(List.of(new Genre(1), new Genre(2))))));
+        }
+        caches.invalidateAll();
+
+        assertQueryBudget("/films", 3);
+        assertQueryBudget("/films/" + films.get(0).getId(), 3);
+        assertQueryBudget("/films?ids=" + films.get(1).getId() + "," + films.get(2).getId(), 3);
+        assertQueryBudget("/films/popular?count=10", 3);
+        //повторное чтение фильма - из кэша
+        assertQueryBudget("/films/" + films.get(0).getId(), 0);
+    }
+
+    private void assertQueryBudget(String path, int budget) throws Exception {
+        try (QueryRecorder queries = QueryRecorder.start()) {
+            mvc.perform(get(path)).andExpect(status().isOk());
+            queries.assertCount(budget);
+        }
+    }
+
     //сохранить в контроллере объект с валидными полями
     //эндпоинт POST /films
     @Test
@@ -12,10 +12,15 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.MpaRating;
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryRecorder;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -31,11 +36,18 @@ class UserControllerTest {
     private ObjectMapper objectMapper;
 
     @Autowired
-    private @Qualifier("userDbStorage") UserStorage userStorage;
+    private @Qualifier("cachingUserStorage") UserStorage userStorage;
+
+    @Autowired
+    private @Qualifier("cachingFilmStorage") FilmStorage filmStorage;
+
+    @Autowired
+    private EntityCaches caches;
 
     @AfterEach
     private void resetStorage() {
         userStorage.clearAll();
+        filmStorage.clearAll();
     }
 
     //получить список объектов
@@ -56,6 +68,148 @@ class UserControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(List.of(user))));
     }
 
+    //получить пользователей по списку id, ненайденные id - в заголовке
+    // эндпоинт GET /users?ids=
+    @Test
+    void getUsersByIds() throws Exception {
+        User user = new User("aa@mm.ru", "a", "b", LocalDate.now().minusYears(18));
+        ResultActions resultActions = mvc.perform(post("/users")
+                        .content(objectMapper.writeValueAsString(user))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        Integer id = JsonPath.read(resultActions.andReturn().getResponse().getContentAsString(), "$.id");
+        user.setId(id);
+        mvc.perform(get("/users?ids=9998," + id + ",9999")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Missing-Ids", "9998,9999"))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(user))));
+    }
+
+    //пустой элемент в списке id
+    // эндпоинт GET /users?ids=
+    @Test
+    void getUsersByIdsWithEmptyElement() throws Exception {
+        mvc.perform(get("/users?ids=1,,2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("error"));
+    }
+
+    //получить лайкнутые пользователем фильмы постранично и общие с другим пользователем лайки
+    // эндпоинты GET /users/{id}/likes, GET /users/{id}/likes/common/{otherId}
+    @Test
+    void getLikedAndCommonLikedFilms() throws Exception {
+        User user1 = userStorage.create(new User("aa@mm.ru", "a", "a", LocalDate.now().minusYears(18)));
+        User user2 = userStorage.create(new User("bb@mm.ru", "b", "b", LocalDate.now().minusYears(18)));
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film film = filmStorage.create(new Film("f" + i, "d", LocalDate.now().minusYears(1), 90
+                    , new MpaRating(1), new ArrayList<>()));
+            films.add(film);
+            mvc.perform(put("/films/" + film.getId() + "/like/" + user1.getId())).andExpect(status().isOk());
+        }
+        mvc.perform(put("/films/" + films.get(2).getId() + "/like/" + user2.getId())).andExpect(status().isOk());
+
+        mvc.perform(get("/users/" + user1.getId() + "/likes?from=1&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(films.get(1).getId()));
+
+        mvc.perform(get("/users/" + user1.getId() + "/likes/common/" + user2.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(films.get(2).getId()));
+
+        mvc.perform(delete("/films/" + films.get(2).getId() + "/like/" + user2.getId())).andExpect(status().isOk());
+        mvc.perform(get("/users/" + user1.getId() + "/likes/common/" + user2.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mvc.perform(get("/users/9999/likes"))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/users/" + user1.getId() + "/likes?size=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //получить фильмы, популярные среди друзей; лайк друга обновляет рейтинг
+    // эндпоинт GET /users/{id}/friends/films/popular
+    @Test
+    void getFriendsPopularFilms() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userStorage.create(new User("u" + i + "@mm.ru", "u" + i, "u", LocalDate.now().minusYears(18))));
+        }
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            films.add(filmStorage.create(new Film("f" + i, "d", LocalDate.now().minusYears(1), 90
+                    , new MpaRating(1), new ArrayList<>())));
+        }
+        mvc.perform(put("/users/" + users.get(0).getId() + "/friends/" + users.get(1).getId())).andExpect(status().isOk());
+        mvc.perform(put("/users/" + users.get(0).getId() + "/friends/" + users.get(2).getId())).andExpect(status().isOk());
+        mvc.perform(put("/films/" + films.get(1).getId() + "/like/" + users.get(1).getId())).andExpect(status().isOk());
+        mvc.perform(put("/films/" + films.get(2).getId() + "/like/" + users.get(1).getId())).andExpect(status().isOk());
+        mvc.perform(put("/films/" + films.get(2).getId() + "/like/" + users.get(2).getId())).andExpect(status().isOk());
+        //собственный лайк пользователя не учитывается
+        mvc.perform(put("/films/" + films.get(0).getId() + "/like/" + users.get(0).getId())).andExpect(status().isOk());
+
+        mvc.perform(get("/users/" + users.get(0).getId() + "/friends/films/popular"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(films.get(2).getId()))
+                .andExpect(jsonPath("$[1].id").value(films.get(1).getId()));
+
+        mvc.perform(put("/films/" + films.get(1).getId() + "/like/" + users.get(2).getId())).andExpect(status().isOk());
+        //при равном количестве лайков выше фильм с меньшим id
+        mvc.perform(get("/users/" + users.get(0).getId() + "/friends/films/popular"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(films.get(1).getId()))
+                .andExpect(jsonPath("$[1].id").value(films.get(2).getId()));
+        mvc.perform(get("/users/" + users.get(0).getId() + "/friends/films/popular?count=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(films.get(1).getId()));
+
+        mvc.perform(get("/users/9999/friends/films/popular"))
+                .andExpect(status().isNotFound());
+    }
+
+    //количество SQL-запросов эндпоинтов чтения не зависит от количества пользователей и друзей (нет N+1)
+    //эндпоинты GET /users, GET /users/{id}, GET /users/{id}/friends, GET /users/{id}/friends/common/{otherId},
+    //GET /users/{id}/friends/films/popular
+    @Test
+    void readQueryBudgets() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(userStorage.create(new User("u" + i + "@mm.ru", "u" + i, "u", LocalDate.now().minusYears(18))));
+        }
+        Film film = filmStorage.create(new Film("f", "d", LocalDate.now().minusYears(1), 90, new MpaRating(1)
+                , new ArrayList<>()));
+        for (int i = 2; i < 5; i++) {
+            mvc.perform(put("/users/" + users.get(0).getId() + "/friends/" + users.get(i).getId()))
+                    .andExpect(status().isOk());
+            mvc.perform(put("/users/" + users.get(1).getId() + "/friends/" + users.get(i).getId()))
+                    .andExpect(status().isOk());
+            mvc.perform(put("/films/" + film.getId() + "/like/" + users.get(i).getId())).andExpect(status().isOk());
+        }
+        caches.invalidateAll();
+
+        Integer id = users.get(0).getId();
+        assertQueryBudget("/users", 2);
+        assertQueryBudget("/users/" + id, 2);
+        assertQueryBudget("/users/" + id + "/friends", 1);
+        assertQueryBudget("/users/" + id + "/friends/common/" + users.get(1).getId(), 1);
+        assertQueryBudget("/users/" + id + "/friends/films/popular", 4);
+    }
+
+    private void assertQueryBudget(String path, int budget) throws Exception {
+        try (QueryRecorder queries = QueryRecorder.start()) {
+            mvc.perform(get(path)).andExpect(status().isOk());
+            queries.assertCount(budget);
+        }
+    }
+
     //сохранить в контроллере объект с валидными полями
     //эндпоинт POST /users
     @Test
@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест REST API: приложение запускается на случайном порту, набор данных создается DatasetGenerator,
+ * смесь запросов на чтение, лайков и изменений друзей подается по открытой модели.
+ * Выполняется только с профилем load-test (mvn -Pload-test test), параметры - filmorate.load.*:
+ * rate (запросов в секунду), warmup-seconds, duration-seconds, p99-ms и max-error-rate (пороги),
+ * mix.<операция> (вес операции), users, films
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureTestDatabase
+@EnabledIfSystemProperty(named = "filmorate.load.enabled", matches = "true")
+@Slf4j
+class ApiLoadTest {
+    private static final int WRITERS = 100;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private Environment env;
+    @Autowired
+    private DatasetGenerator generator;
+    @Autowired
+    private CachingUserStorage userStorage;
+    @Autowired
+    private CachingFilmStorage filmStorage;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private int users;
+    private int films;
+    // пользователи без лайков, созданные тестом: лайки ставятся и снимаются только ими
+    private final List<Integer> writerIds = new ArrayList<>();
+    private final Set<Long> likedPairs = ConcurrentHashMap.newKeySet();
+    private final Set<Long> busyPairs = ConcurrentHashMap.newKeySet();
+
+    @AfterEach
+    void resetStorage() {
+        userStorage.clearAll();
+        filmStorage.clearAll();
+    }
+
+    @Test
+    void latencyIsWithinThresholds() throws InterruptedException, IOException {
+        users = property("users", 5000);
+        films = property("films", 2000);
+        generator.generate(new DatasetSpec(users, films, 20, 20, 1.0, 42));
+        for (int i = 0; i < WRITERS; i++) {
+            writerIds.add(userStorage.create(new User("writer" + i + "@mail.ru", "writer" + i, "writer" + i
+                    , LocalDate.of(2000, 1, 1))).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        Map<String, EndpointStats> stats;
+        try {
+            OpenModelLoadGenerator load = new OpenModelLoadGenerator(client, operations()
+                    , property("max-outstanding", 5000));
+            stats = load.run(property("rate", 50), Duration.ofSeconds(property("warmup-seconds", 5))
+                    , Duration.ofSeconds(property("duration-seconds", 20)));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("Результаты нагрузочного теста:{}{}", System.lineSeparator(), OpenModelLoadGenerator.format(stats));
+        File resultFile = new File(env.getProperty("filmorate.load.result-file", "target/load-test-result.json"));
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(resultFile, stats.values());
+
+        double p99Millis = env.getProperty("filmorate.load.p99-ms", Double.class, 500.0);
+        double maxErrorRate = env.getProperty("filmorate.load.max-error-rate", Double.class, 0.01);
+        List<String> violations = stats.values().stream()
+                .filter(s -> s.getCount() + s.getErrors() > 0)
+                .filter(s -> s.getP99() > p99Millis || s.getErrorRate() > maxErrorRate)
+                .map(s -> s.getName() + ": p99 " + s.getP99() + " ms, ошибок " + s.getErrors())
+                .collect(Collectors.toList());
+        assertTrue(violations.isEmpty(), "Превышены пороги p99 " + p99Millis + " ms / доля ошибок " + maxErrorRate
+                + ": " + violations);
+    }
+
+    private List<LoadOperation> operations() {
+        return List.of(
+                read("films", "GET /films", 2, random -> "/films")
+                , read("film", "GET /films/{id}", 20, random -> "/films/" + randomFilm(random))
+                , read("popular", "GET /films/popular", 15, random -> "/films/popular?count=10")
+                , read("films-by-ids", "GET /films?ids=", 5
+                        , random -> "/films?ids=" + randomFilm(random) + "," + randomFilm(random) + "," + randomFilm(random))
+                , read("user", "GET /users/{id}", 15, random -> "/users/" + randomUser(random))
+                , read("friends", "GET /users/{id}/friends", 10, random -> "/users/" + randomUser(random) + "/friends")
+                , read("common-friends", "GET /users/{id}/friends/common/{otherId}", 5
+                        , random -> "/users/" + randomUser(random) + "/friends/common/" + randomUser(random))
+                , read("genres", "GET /genres", 2, random -> "/genres")
+                , read("genre", "GET /genres/{id}", 2, random -> "/genres/" + (1 + random.nextInt(6)))
+                , read("mpa-ratings", "GET /mpa", 2, random -> "/mpa")
+                , read("mpa-rating", "GET /mpa/{id}", 2, random -> "/mpa/" + (1 + random.nextInt(5)))
+                , new LoadOperation("PUT|DELETE /films/{id}/like/{userId}", weight("like", 10), this::toggleLike)
+                , new LoadOperation("PUT|DELETE /users/{id}/friends/{friendId}", weight("friend", 10)
+                        , this::changeFriend)
+        );
+    }
+
+    private LoadOperation read(String key, String name, int defaultWeight, Function<ThreadLocalRandom, String> path) {
+        return new LoadOperation(name, weight(key, defaultWeight)
+                , random -> new LoadOperation.LoadRequest(request(path.apply(random)).GET().build()));
+    }
+
+    /**
+     * лайк или снятие лайка в зависимости от текущего состояния пары; пары с запросом без ответа не используются,
+     * чтобы не отправить повторный лайк
+     */
+    private LoadOperation.LoadRequest toggleLike(ThreadLocalRandom random) {
+        int filmId = randomFilm(random);
+        int userId = writerIds.get(random.nextInt(writerIds.size()));
+        long pair = (long) filmId << 32 | userId;
+        if (!busyPairs.add(pair)) {
+            return null;
+        }
+        boolean liked = likedPairs.contains(pair);
+        HttpRequest.Builder builder = request("/films/" + filmId + "/like/" + userId);
+        HttpRequest request = liked ? builder.DELETE().build() : builder.PUT(HttpRequest.BodyPublishers.noBody()).build();
+        return new LoadOperation.LoadRequest(request, () -> {
+            if (liked) {
+                likedPairs.remove(pair);
+            } else {
+                likedPairs.add(pair);
+            }
+            busyPairs.remove(pair);
+        });
+    }
+
+    /**
+     * добавление и удаление друга идемпотентны, поэтому состояние не отслеживается
+     */
+    private LoadOperation.LoadRequest changeFriend(ThreadLocalRandom random) {
+        int userId = writerIds.get(random.nextInt(writerIds.size()));
+        HttpRequest.Builder builder = request("/users/" + userId + "/friends/" + randomUser(random));
+        return new LoadOperation.LoadRequest(random.nextBoolean()
+                ? builder.PUT(HttpRequest.BodyPublishers.noBody()).build()
+                : builder.DELETE().build());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+    }
+
+    private int randomFilm(ThreadLocalRandom random) {
+        return 1 + random.nextInt(films);
+    }
+
+    private int randomUser(ThreadLocalRandom random) {
+        return 1 + random.nextInt(users);
+    }
+
+    private int weight(String operation, int defaultWeight) {
+        return env.getProperty("filmorate.load.mix." + operation, Integer.class, defaultWeight);
+    }
+
+    private int property(String name, int defaultValue) {
+        return env.getProperty("filmorate.load." + name, Integer.class, defaultValue);
+    }
+}
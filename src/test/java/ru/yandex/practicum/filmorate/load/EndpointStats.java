@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.load;
+
+import lombok.Data;
+import org.HdrHistogram.Histogram;
+
+/**
+ * итоги нагрузочного теста по одному эндпоинту, задержки в миллисекундах
+ */
+@Data
+public class EndpointStats {
+    private final String name;
+    // успешные ответы
+    private final long count;
+    // ответы с кодом 4xx/5xx, ошибки соединения и запросы, отброшенные из-за переполнения очереди
+    private final long errors;
+    // успешных ответов в секунду
+    private final double throughput;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    static EndpointStats of(String name, Histogram histogram, long errors, double seconds) {
+        return new EndpointStats(name, histogram.getTotalCount(), errors, histogram.getTotalCount() / seconds
+                , millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90))
+                , millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9))
+                , millis(histogram.getMaxValue()));
+    }
+
+    public double getErrorRate() {
+        return count + errors == 0 ? 0 : (double) errors / (count + errors);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
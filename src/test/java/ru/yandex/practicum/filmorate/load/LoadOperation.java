@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.load;
+
+import lombok.Data;
+
+import java.net.http.HttpRequest;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * вид запроса в нагрузочном тесте: имя для статистики, доля в общем потоке и построение очередного запроса
+ */
+@Data
+public class LoadOperation {
+    // имя эндпоинта в отчете, например "GET /films/{id}"
+    private final String name;
+    // относительный вес операции в смеси запросов
+    private final int weight;
+    // построение запроса, null - запрос сейчас невозможен (например, все пары для лайков заняты)
+    private final Function<ThreadLocalRandom, LoadRequest> requestFactory;
+
+    /**
+     * запрос и действие после получения ответа
+     */
+    @Data
+    public static class LoadRequest {
+        private final HttpRequest request;
+        private final Runnable onComplete;
+
+        public LoadRequest(HttpRequest request) {
+            this(request, () -> {
+            });
+        }
+
+        public LoadRequest(HttpRequest request, Runnable onComplete) {
+            this.request = request;
+            this.onComplete = onComplete;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки по открытой модели: запросы отправляются с заданной частотой независимо от того,
+ * ответил ли сервер на предыдущие. Задержка считается от запланированного момента отправки, поэтому
+ * очередь перед медленным сервером попадает в статистику (нет coordinated omission)
+ */
+public class OpenModelLoadGenerator {
+    // максимальная измеряемая задержка, мкс
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final HttpClient client;
+    private final List<LoadOperation> operations;
+    private final int totalWeight;
+    private final int maxOutstanding;
+
+    /**
+     * @param client         HTTP-клиент, соединения открываются по мере роста числа одновременных запросов
+     * @param operations     смесь запросов
+     * @param maxOutstanding максимальное количество запросов без ответа, сверх него запросы считаются ошибками
+     */
+    public OpenModelLoadGenerator(HttpClient client, List<LoadOperation> operations, int maxOutstanding) {
+        this.client = client;
+        this.operations = operations;
+        this.totalWeight = operations.stream().mapToInt(LoadOperation::getWeight).sum();
+        this.maxOutstanding = maxOutstanding;
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Сумма весов операций должна быть положительной");
+        }
+    }
+
+    /**
+     * подать нагрузку и собрать статистику; ответы на запросы периода прогрева не учитываются
+     *
+     * @param ratePerSecond частота запросов
+     * @param warmup        длительность прогрева
+     * @param duration      длительность измерения
+     * @return статистика по эндпоинтам в порядке списка операций
+     */
+    public Map<String, EndpointStats> run(int ratePerSecond, Duration warmup, Duration duration)
+            throws InterruptedException {
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        Map<String, AtomicLong> errors = new LinkedHashMap<>();
+        for (LoadOperation operation : operations) {
+            histograms.put(operation.getName(), new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3));
+            errors.put(operation.getName(), new AtomicLong());
+        }
+        AtomicInteger outstanding = new AtomicInteger();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        long measureStart = start + warmup.toNanos();
+        long end = measureStart + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            LoadOperation operation = pick(ThreadLocalRandom.current());
+            boolean measured = intended >= measureStart;
+            AtomicLong operationErrors = errors.get(operation.getName());
+            LoadOperation.LoadRequest request = operation.getRequestFactory().apply(ThreadLocalRandom.current());
+            if (request == null) {
+                continue;
+            }
+            if (outstanding.incrementAndGet() > maxOutstanding) {
+                outstanding.decrementAndGet();
+                request.getOnComplete().run();
+                if (measured) {
+                    operationErrors.incrementAndGet();
+                }
+                continue;
+            }
+
+            Histogram histogram = histograms.get(operation.getName());
+            client.sendAsync(request.getRequest(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+                        outstanding.decrementAndGet();
+                        request.getOnComplete().run();
+                        if (!measured) {
+                            return;
+                        }
+                        if (e != null || response.statusCode() >= 400) {
+                            operationErrors.incrementAndGet();
+                        } else {
+                            histogram.recordValue(Math.min(latencyMicros, HIGHEST_LATENCY_MICROS));
+                        }
+                    });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        double seconds = duration.toMillis() / 1000.0;
+        Map<String, EndpointStats> result = new LinkedHashMap<>();
+        for (String name : histograms.keySet()) {
+            result.put(name, EndpointStats.of(name, histograms.get(name), errors.get(name).get(), seconds));
+        }
+        return result;
+    }
+
+    /**
+     * отчет в виде таблицы
+     */
+    public static String format(Map<String, EndpointStats> stats) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-40s %8s %7s %9s %9s %9s %9s %9s %9s", "endpoint", "count", "errors", "rps"
+                , "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (EndpointStats s : stats.values()) {
+            lines.add(String.format("%-40s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f", s.getName(), s.getCount()
+                    , s.getErrors(), s.getThroughput(), s.getP50(), s.getP90(), s.getP99(), s.getP999(), s.getMax()));
+        }
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    private LoadOperation pick(ThreadLocalRandom random) {
+        int value = random.nextInt(totalWeight);
+        for (LoadOperation operation : operations) {
+            value -= operation.getWeight();
+            if (value < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+}
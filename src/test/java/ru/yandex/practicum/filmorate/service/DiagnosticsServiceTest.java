@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+import ru.yandex.practicum.filmorate.exceptions.RecordingStateException;
+import ru.yandex.practicum.filmorate.models.ClassHistogramEntry;
+import ru.yandex.practicum.filmorate.models.HotSpot;
+import ru.yandex.practicum.filmorate.models.JfrRecordingInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagnosticsServiceTest {
+    private static final Object LOCK = new Object();
+
+    @TempDir
+    Path directory;
+
+    private DiagnosticsService diagnosticsService;
+
+    @AfterEach
+    void closeRecording() {
+        if (diagnosticsService != null) {
+            diagnosticsService.closeRecording();
+        }
+    }
+
+    /**
+     * выделения памяти и ожидание блокировки в методах пакета service попадают в места записи JFR
+     */
+    @Test
+    void attributesAllocationsAndLocksToOwnCode() throws InterruptedException, IOException {
+        diagnosticsService = new DiagnosticsService(directory.toString(), 60, 50);
+        assertThrows(RecordingStateException.class, () -> diagnosticsService.getRecording());
+
+        JfrRecordingInfo info = diagnosticsService.startRecording("profile", 60);
+        assertEquals("RUNNING", info.getState());
+        assertThrows(RecordingStateException.class, () -> diagnosticsService.startRecording("profile", 60));
+        assertThrows(RecordingStateException.class, () -> diagnosticsService.getRecordingFile());
+
+        allocate();
+        contend();
+
+        //во время записи места читаются из копии собранных данных
+        assertTrue(findFrame(diagnosticsService.getAllocationHotSpots(100), "allocate"));
+
+        info = diagnosticsService.stopRecording();
+        assertNotEquals("RUNNING", info.getState());
+        assertTrue(Files.size(diagnosticsService.getRecordingFile()) > 0);
+        //в файле нет событий с переменными окружения и системными свойствами
+        assertTrue(RecordingFile.readAllEvents(diagnosticsService.getRecordingFile()).stream()
+                .noneMatch(e -> DiagnosticsService.SENSITIVE_EVENTS.contains(e.getEventType().getName())));
+        assertTrue(findFrame(diagnosticsService.getAllocationHotSpots(100), "allocate"));
+        assertTrue(findFrame(diagnosticsService.getLockHotSpots(100), "contend"));
+        assertEquals(1, diagnosticsService.getAllocationHotSpots(1).size());
+    }
+
+    @Test
+    void validatesRecordingParameters() {
+        diagnosticsService = new DiagnosticsService(directory.toString(), 60, 50);
+        assertThrows(ParameterValidationException.class, () -> diagnosticsService.startRecording("unknown", 10));
+        assertThrows(ParameterValidationException.class, () -> diagnosticsService.startRecording("default", 61));
+        assertThrows(ParameterValidationException.class, () -> diagnosticsService.startRecording("default", 0));
+    }
+
+    @Test
+    void classHistogram() {
+        diagnosticsService = new DiagnosticsService(directory.toString(), 60, 50);
+        List<ClassHistogramEntry> histogram = diagnosticsService.getClassHistogram(10, false);
+        assertEquals(10, histogram.size());
+        assertTrue(histogram.get(0).getBytes() >= histogram.get(9).getBytes());
+        assertTrue(histogram.get(0).getInstances() > 0);
+    }
+
+    private static boolean findFrame(List<HotSpot> hotSpots, String method) {
+        return hotSpots.stream().anyMatch(h -> h.getFrame().startsWith("DiagnosticsServiceTest." + method + ":"));
+    }
+
+    private static void allocate() {
+        List<byte[]> arrays = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            arrays.add(new byte[10_000]);
+            if (arrays.size() > 100) {
+                arrays.clear();
+            }
+        }
+    }
+
+    /**
+     * второй поток ждет монитор, который первый удерживает дольше порога события JavaMonitorEnter
+     */
+    private static void contend() throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (LOCK) {
+                locked.countDown();
+                sleep(200);
+            }
+        });
+        holder.start();
+        locked.await();
+        synchronized (LOCK) {
+            assertTrue(Thread.holdsLock(LOCK));
+        }
+        holder.join();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
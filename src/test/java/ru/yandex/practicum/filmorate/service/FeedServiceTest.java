@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.events.FriendshipEvent;
+import ru.yandex.practicum.filmorate.models.FeedEvent;
+import ru.yandex.practicum.filmorate.models.FeedEventType;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedServiceTest {
+    private InMemoryUserStorage userStorage;
+    private FeedService feedService;
+    private final List<User> users = new ArrayList<>();
+
+    /**
+     * пользователи 1 и 2 подписаны на пользователя 0 (больше порога - события читаются из его ленты),
+     * пользователь 3 подписан на пользователя 1 (события рассылаются по лентам подписчиков)
+     */
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+        feedService = new FeedService(userStorage, new EntityCaches(true, 5), 3, 1, 100);
+        for (int i = 0; i < 4; i++) {
+            users.add(userStorage.create(new User("u" + i + "@mm.ru", "u" + i, "u", LocalDate.of(2000, 1, 1))));
+        }
+        userStorage.addFriend(users.get(1), users.get(0).getId());
+        userStorage.addFriend(users.get(2), users.get(0).getId());
+        userStorage.addFriend(users.get(3), users.get(1).getId());
+    }
+
+    /**
+     * события пользователя с большим количеством подписчиков читаются из его ленты, остальные - из ленты читателя
+     */
+    @Test
+    void fanOutOnWriteAndOnRead() {
+        feedService.onFilmLike(new FilmLikeEvent(10, users.get(0).getId(), true));
+        feedService.onFilmLike(new FilmLikeEvent(20, users.get(1).getId(), true));
+        feedService.onFriendship(new FriendshipEvent(users.get(1).getId(), users.get(2).getId(), true));
+        //снятие лайка в ленту не попадает
+        feedService.onFilmLike(new FilmLikeEvent(20, users.get(1).getId(), false));
+
+        List<FeedEvent> feedOf1 = feedService.getFeed(users.get(1).getId(), null, 10);
+        assertEquals(1, feedOf1.size());
+        assertEquals(FeedEventType.LIKE, feedOf1.get(0).getEventType());
+        assertEquals(10, feedOf1.get(0).getEntityId());
+
+        List<FeedEvent> feedOf3 = feedService.getFeed(users.get(3).getId(), null, 10);
+        assertEquals(List.of(FeedEventType.FRIEND, FeedEventType.LIKE)
+                , feedOf3.stream().map(FeedEvent::getEventType).collect(Collectors.toList()));
+
+        assertTrue(feedService.getFeed(users.get(0).getId(), null, 10).isEmpty());
+    }
+
+    /**
+     * постраничное чтение по id события, лента ограничена по размеру, события удаленных друзей не отдаются
+     */
+    @Test
+    void keysetPagingAndBoundedTimeline() {
+        for (int filmId = 1; filmId <= 5; filmId++) {
+            feedService.onFilmLike(new FilmLikeEvent(filmId, users.get(1).getId(), true));
+        }
+
+        List<FeedEvent> firstPage = feedService.getFeed(users.get(3).getId(), null, 2);
+        assertEquals(List.of(5, 4), firstPage.stream().map(FeedEvent::getEntityId).collect(Collectors.toList()));
+
+        List<FeedEvent> secondPage = feedService.getFeed(users.get(3).getId(), firstPage.get(1).getEventId(), 2);
+        assertEquals(List.of(3), secondPage.stream().map(FeedEvent::getEntityId).collect(Collectors.toList()));
+
+        userStorage.removeFriend(users.get(3), users.get(1).getId());
+        assertTrue(feedService.getFeed(users.get(3).getId(), null, 2).isEmpty());
+    }
+
+    /**
+     * события удаленных друзей пропускаются, и страница заполняется более старыми событиями остальных друзей
+     */
+    @Test
+    void removedFriendEventsDoNotShortenPage() {
+        userStorage.addFriend(users.get(3), users.get(2).getId());
+        feedService.onFilmLike(new FilmLikeEvent(1, users.get(2).getId(), true));
+        feedService.onFilmLike(new FilmLikeEvent(2, users.get(1).getId(), true));
+        feedService.onFilmLike(new FilmLikeEvent(3, users.get(1).getId(), true));
+        userStorage.removeFriend(users.get(3), users.get(1).getId());
+
+        List<FeedEvent> page = feedService.getFeed(users.get(3).getId(), null, 2);
+        assertEquals(List.of(1), page.stream().map(FeedEvent::getEntityId).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendGraphServiceTest {
+
+    /**
+     * граф: 1 -> 2 -> 3 -> 4 -> 5, короткий путь 1 -> 6 -> 5, тупик 7 -> 1
+     */
+    private static FriendGraph buildGraph() {
+        int[] from = {1, 2, 3, 4, 1, 6, 7};
+        int[] to = {2, 3, 4, 5, 6, 5, 1};
+        return FriendGraph.build(7, from, to, from.length);
+    }
+
+    /**
+     * находится кратчайшая цепочка с учетом направления ребер
+     */
+    @Test
+    void findsShortestDirectedPath() {
+        FriendGraph graph = buildGraph();
+
+        assertEquals(List.of(1, 6, 5), FriendGraphService.findPath(graph, 1, 5, 6, 100));
+        assertEquals(List.of(7, 1, 2, 3), FriendGraphService.findPath(graph, 7, 3, 6, 100));
+        assertEquals(List.of(2), FriendGraphService.findPath(graph, 2, 2, 6, 100));
+        assertTrue(FriendGraphService.findPath(graph, 5, 1, 6, 100).isEmpty());
+    }
+
+    /**
+     * поиск прекращается при превышении длины цепочки или количества посещенных вершин
+     */
+    @Test
+    void searchIsLimited() {
+        FriendGraph graph = buildGraph();
+
+        assertEquals(List.of(7, 1, 2, 3), FriendGraphService.findPath(graph, 7, 3, 3, 100));
+        assertTrue(FriendGraphService.findPath(graph, 7, 3, 2, 100).isEmpty());
+        assertTrue(FriendGraphService.findPath(graph, 7, 3, 6, 3).isEmpty());
+        assertTrue(FriendGraphService.findPath(graph, 1, 99, 6, 100).isEmpty());
+    }
+
+    /**
+     * предел количества посещенных вершин соблюдается и внутри одного уровня: обход друзей пользователя
+     * с большим количеством друзей прекращается, не дойдя до конца списка
+     */
+    @Test
+    void visitedBudgetStopsHubExpansion() {
+        int[] from = new int[999];
+        int[] to = new int[999];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = 1;
+            to[i] = i + 2;
+        }
+        FriendGraph graph = FriendGraph.build(1000, from, to, from.length);
+
+        assertEquals(List.of(1, 1000), FriendGraphService.findPath(graph, 1, 1000, 6, 2000));
+        assertTrue(FriendGraphService.findPath(graph, 1, 1000, 6, 100).isEmpty());
+    }
+}
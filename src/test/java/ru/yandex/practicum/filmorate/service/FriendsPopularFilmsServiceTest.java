@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.events.FriendshipEvent;
+import ru.yandex.practicum.filmorate.exceptions.ParameterValidationException;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.validators.IdListValidator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendsPopularFilmsServiceTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile CountDownLatch loadStarted;
+    private volatile CountDownLatch releaseLoad;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private FriendsPopularFilmsService service;
+    private User reader;
+    private Film film1;
+    private Film film2;
+
+    @BeforeEach
+    void createService() {
+        //хранилище считает загрузки лайков друзей и может задержать загрузку
+        filmStorage = new InMemoryFilmStorage() {
+            @Override
+            public Map<Integer, RoaringBitmap> getLikedFilmIds(List<Integer> userIdList) {
+                loads.incrementAndGet();
+                Map<Integer, RoaringBitmap> likes = super.getLikedFilmIds(userIdList);
+                if (releaseLoad != null) {
+                    loadStarted.countDown();
+                    try {
+                        releaseLoad.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return likes;
+            }
+        };
+        userStorage = new InMemoryUserStorage();
+        service = new FriendsPopularFilmsService(filmStorage, userStorage, new EntityCaches(true, 5), 60_000
+                , 10_000, 1000);
+
+        reader = userStorage.create(new User("r@mail.ru", "r", "r", LocalDate.of(2000, 1, 1)));
+        for (int i = 1; i <= 3; i++) {
+            User user = userStorage.create(new User(i + "@mail.ru", "u" + i, "u" + i, LocalDate.of(2000, 1, 1)));
+            //последний пользователь не является другом
+            if (i < 3) {
+                userStorage.addFriend(reader, user.getId());
+            }
+        }
+        film1 = filmStorage.create(new Film("f1", "d", LocalDate.of(2000, 1, 1), 90, new MpaRating(1), new ArrayList<>()));
+        film2 = filmStorage.create(new Film("f2", "d", LocalDate.of(2000, 1, 1), 90, new MpaRating(1), new ArrayList<>()));
+        like(film1, 2);
+    }
+
+    /**
+     * лайк друга удаляет рейтинг, лайк пользователя не из друзей - нет
+     */
+    @Test
+    void friendLikeInvalidatesRanking() {
+        assertEquals(List.of(film1.getId()), popularIds());
+        assertEquals(List.of(film1.getId()), popularIds());
+        assertEquals(1, loads.get());
+
+        like(film2, 4);
+        assertEquals(List.of(film1.getId()), popularIds());
+        assertEquals(1, loads.get());
+
+        like(film2, 2);
+        like(film2, 3);
+        assertEquals(List.of(film2.getId(), film1.getId()), popularIds());
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * рейтинг, при расчете которого друг поставил лайк, не сохраняется
+     */
+    @Test
+    void likeDuringRankIsNotLost() throws Exception {
+        loadStarted = new CountDownLatch(1);
+        releaseLoad = new CountDownLatch(1);
+        CompletableFuture<List<Integer>> inFlight = CompletableFuture.supplyAsync(this::popularIds);
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+        like(film2, 2);
+        like(film2, 3);
+        releaseLoad.countDown();
+        assertEquals(List.of(film1.getId()), inFlight.get(5, TimeUnit.SECONDS));
+
+        releaseLoad = null;
+        assertEquals(List.of(film2.getId(), film1.getId()), popularIds());
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * изменение списка друзей удаляет рейтинги пользователя
+     */
+    @Test
+    void friendshipChangeInvalidatesOwnRankings() {
+        like(film2, 4);
+        assertEquals(List.of(film1.getId()), popularIds());
+        assertEquals(1, loads.get());
+
+        userStorage.addFriend(reader, 4);
+        service.onFriendship(new FriendshipEvent(reader.getId(), 4, true));
+        assertEquals(List.of(film1.getId(), film2.getId()), popularIds());
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * размер списка ограничен, как и список id фильмов в запросе
+     */
+    @Test
+    void countIsLimited() {
+        assertThrows(ParameterValidationException.class
+                , () -> service.getPopularFilms(reader.getId(), IdListValidator.MAX_ID_LIST_SIZE + 1));
+        assertEquals(List.of(film1.getId()), service.getPopularFilms(reader.getId(), IdListValidator.MAX_ID_LIST_SIZE)
+                .stream()
+                .map(Film::getId)
+                .collect(Collectors.toList()));
+    }
+
+    private void like(Film film, int userId) {
+        filmStorage.addLike(film, userId);
+        service.onFilmLike(new FilmLikeEvent(film.getId(), userId, true));
+    }
+
+    private List<Integer> popularIds() {
+        return service.getPopularFilms(reader.getId(), 10).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
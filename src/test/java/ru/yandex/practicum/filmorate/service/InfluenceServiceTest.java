@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InfluenceServiceTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutdown() {
+        POOL.shutdownNow();
+    }
+
+    /**
+     * пользователь, которого добавили в друзья все остальные, получает наибольшую оценку,
+     * среднее значение оценок равно 1, расчет сходится до исчерпания итераций
+     */
+    @Test
+    void starCenterHasHighestScore() {
+        //2, 3, 4 -> 1, 1 -> 2, пользователь 5 без друзей
+        int[] from = {2, 3, 4, 1};
+        int[] to = {1, 1, 1, 2};
+        FriendGraph graph = FriendGraph.build(5, from, to, from.length);
+
+        InfluenceService.PageRank pageRank = InfluenceService.computePageRank(graph, 0.85, 1e-9, 200, POOL);
+
+        double[] scores = pageRank.scores;
+        assertTrue(pageRank.iterations < 200);
+        assertEquals(5.0, Arrays.stream(scores).sum(), 1e-6);
+        for (int v = 2; v <= 5; v++) {
+            assertTrue(scores[1] > scores[v]);
+        }
+        assertTrue(scores[2] > scores[3]);
+        assertEquals(scores[3], scores[4], 1e-9);
+    }
+
+    /**
+     * id без пользователя не получают оценку и не влияют на оценки пользователей:
+     * граф с пропусками в id дает те же оценки, что и граф без пропусков
+     */
+    @Test
+    void missingIdsAreIgnored() {
+        //2, 3 -> 1, 1 -> 2 и пользователь 4 без друзей; те же ребра с id 1 -> 2, 2 -> 5, 3 -> 7, 4 -> 8
+        int[] from = {2, 3, 1};
+        int[] to = {1, 1, 2};
+        FriendGraph compact = FriendGraph.build(4, from, to, from.length);
+        int[] gapFrom = {5, 7, 2};
+        int[] gapTo = {2, 2, 5};
+        FriendGraph withGaps = FriendGraph.build(RoaringBitmap.bitmapOf(2, 8), gapFrom, gapTo, gapFrom.length);
+
+        double[] expected = InfluenceService.computePageRank(compact, 0.85, 1e-9, 200, POOL).scores;
+        double[] actual = InfluenceService.computePageRank(withGaps, 0.85, 1e-9, 200, POOL).scores;
+
+        assertEquals(4, withGaps.getUserCount());
+        assertEquals(4.0, Arrays.stream(actual).sum(), 1e-6);
+        int[] ids = {0, 2, 5, 7, 8};
+        for (int v = 1; v <= 4; v++) {
+            assertEquals(expected[v], actual[ids[v]], 1e-9);
+        }
+        for (int v : new int[]{1, 3, 4, 6}) {
+            assertFalse(withGaps.isUser(v));
+            assertEquals(0, actual[v]);
+        }
+    }
+
+    /**
+     * параллельный расчет дает тот же результат, что и расчет в одном потоке
+     */
+    @Test
+    void parallelAndSingleThreadResultsAreEqual() {
+        int userCount = 2000;
+        int[] from = new int[userCount * 3];
+        int[] to = new int[userCount * 3];
+        int edgeCount = 0;
+        for (int u = 1; u <= userCount; u++) {
+            for (int k = 1; k <= 3; k++) {
+                int v = (int) ((long) u * 7919 * k % userCount) + 1;
+                if (v != u) {
+                    from[edgeCount] = u;
+                    to[edgeCount++] = v;
+                }
+            }
+        }
+        FriendGraph graph = FriendGraph.build(userCount, from, to, edgeCount);
+
+        ForkJoinPool singleThread = new ForkJoinPool(1);
+        try {
+            double[] expected = InfluenceService.computePageRank(graph, 0.85, 1e-9, 100, singleThread).scores;
+            double[] actual = InfluenceService.computePageRank(graph, 0.85, 1e-9, 100, POOL).scores;
+            assertArrayEquals(expected, actual, 1e-9);
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+}
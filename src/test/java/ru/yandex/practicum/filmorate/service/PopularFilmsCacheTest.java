@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.events.FilmLikeEvent;
+import ru.yandex.practicum.filmorate.models.CachedResult;
+import ru.yandex.practicum.filmorate.models.Film;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularFilmsCacheTest {
+
+    /**
+     * после изменения лайков отдается прежний список, а один фоновый пересчет подменяет его новым
+     */
+    @Test
+    void staleListServedWhileSingleRefreshRuns() throws Exception {
+        PopularFilmsCache cache = new PopularFilmsCache(true, 60_000, 10);
+        List<Object> key = List.of(10);
+        Film oldFilm = new Film();
+        oldFilm.setId(1);
+        Film newFilm = new Film();
+        newFilm.setId(2);
+
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        CountDownLatch refreshDone = new CountDownLatch(1);
+
+        CachedResult<List<Film>> first = cache.get(key, () -> {
+            loads.incrementAndGet();
+            return List.of(oldFilm);
+        });
+        assertEquals(List.of(oldFilm), first.getValue());
+
+        //без изменений загрузка не повторяется
+        cache.get(key, () -> {
+            loads.incrementAndGet();
+            return List.of(newFilm);
+        });
+        assertEquals(1, loads.get());
+
+        cache.onFilmLike(new FilmLikeEvent(1, 1, true));
+        for (int i = 0; i < 10; i++) {
+            CachedResult<List<Film>> stale = cache.get(key, () -> {
+                loads.incrementAndGet();
+                await(releaseRefresh);
+                refreshDone.countDown();
+                return List.of(newFilm);
+            });
+            assertEquals(List.of(oldFilm), stale.getValue());
+        }
+        releaseRefresh.countDown();
+        assertTrue(refreshDone.await(5, TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+
+        CachedResult<List<Film>> refreshed = waitForValue(cache, key, List.of(newFilm));
+        assertEquals(List.of(newFilm), refreshed.getValue());
+        cache.shutdown();
+    }
+
+    /**
+     * лайк во время фонового пересчета не теряется: новый результат остается устаревшим и пересчитывается еще раз
+     */
+    @Test
+    void likeDuringRefreshKeepsResultStale() throws Exception {
+        PopularFilmsCache cache = new PopularFilmsCache(true, 60_000, 10);
+        List<Object> key = List.of(10);
+        Film oldFilm = new Film();
+        oldFilm.setId(1);
+        Film midFilm = new Film();
+        midFilm.setId(2);
+        Film newFilm = new Film();
+        newFilm.setId(3);
+
+        cache.get(key, () -> List.of(oldFilm));
+        cache.onFilmLike(new FilmLikeEvent(1, 1, true));
+
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        cache.get(key, () -> {
+            refreshStarted.countDown();
+            await(releaseRefresh);
+            return List.of(midFilm);
+        });
+        assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+        //лайк после начала вычисления
+        cache.onFilmLike(new FilmLikeEvent(2, 1, true));
+        releaseRefresh.countDown();
+
+        //пока пересчет не закончен, отдается прежний результат; результат пересчета устарел и вычисляется заново
+        AtomicInteger loads = new AtomicInteger();
+        CachedResult<List<Film>> refreshed;
+        long deadline = System.currentTimeMillis() + 5000;
+        do {
+            refreshed = cache.get(key, () -> {
+                loads.incrementAndGet();
+                return List.of(newFilm);
+            });
+            Thread.sleep(10);
+        } while (!List.of(newFilm).equals(refreshed.getValue()) && System.currentTimeMillis() < deadline);
+        assertEquals(List.of(newFilm), refreshed.getValue());
+        assertEquals(1, loads.get());
+        cache.shutdown();
+    }
+
+    private static CachedResult<List<Film>> waitForValue(PopularFilmsCache cache, List<Object> key
+            , List<Film> expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        CachedResult<List<Film>> result;
+        do {
+            result = cache.get(key, List::of);
+            Thread.sleep(10);
+        } while (!expected.equals(result.getValue()) && System.currentTimeMillis() < deadline);
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularFilmsPublisherTest {
+    private final CountDownLatch releaseStalled = new CountDownLatch(1);
+    private final TestEmitter[] next = new TestEmitter[1];
+    private InMemoryFilmStorage filmStorage;
+    private Film film;
+    private PopularFilmsPublisher publisher;
+
+    @AfterEach
+    void shutdown() {
+        releaseStalled.countDown();
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+
+    /**
+     * подписчики, не принимающие события, отключаются по таймауту отправки и не задерживают рассылку
+     * остальным, даже если заняли все потоки отправки
+     */
+    @Test
+    void stalledSubscribersDoNotBlockOthers() throws InterruptedException {
+        createPublisher(4);
+
+        TestEmitter stalled1 = subscribe(true);
+        TestEmitter stalled2 = subscribe(true);
+        TestEmitter healthy = subscribe(false);
+        assertTrue(stalled1.entered.await(5, TimeUnit.SECONDS));
+        assertTrue(stalled2.entered.await(5, TimeUnit.SECONDS));
+        //оба потока отправки заняты, начальный список здорового подписчика ждет в очереди
+        assertEquals(0, healthy.sent.get());
+
+        Thread.sleep(150);
+        publisher.dropStalledSubscribers();
+        assertEquals(1, publisher.getSubscriberCount());
+        assertTrue(healthy.awaitSent(1));
+
+        filmStorage.addLike(film, 1);
+        publisher.onFilmLike(null);
+        publisher.publishChanges();
+        assertTrue(healthy.awaitSent(2));
+
+        releaseStalled.countDown();
+        assertTrue(stalled1.completedWithError.await(5, TimeUnit.SECONDS));
+        assertTrue(stalled2.completedWithError.await(5, TimeUnit.SECONDS));
+        assertEquals(1, healthy.completedWithError.getCount());
+    }
+
+    /**
+     * пул не растет больше max-send-threads: при зависании всех потоков отправки остальные подписчики ждут
+     * завершения записи, зависшие подписчики все равно отключаются
+     */
+    @Test
+    void sendPoolIsCapped() throws InterruptedException {
+        createPublisher(2);
+
+        TestEmitter stalled1 = subscribe(true);
+        TestEmitter stalled2 = subscribe(true);
+        TestEmitter healthy = subscribe(false);
+        assertTrue(stalled1.entered.await(5, TimeUnit.SECONDS));
+        assertTrue(stalled2.entered.await(5, TimeUnit.SECONDS));
+
+        Thread.sleep(150);
+        publisher.dropStalledSubscribers();
+        assertEquals(1, publisher.getSubscriberCount());
+        Thread.sleep(100);
+        assertEquals(0, healthy.sent.get());
+
+        releaseStalled.countDown();
+        assertTrue(stalled1.completedWithError.await(5, TimeUnit.SECONDS));
+        assertTrue(stalled2.completedWithError.await(5, TimeUnit.SECONDS));
+        assertTrue(healthy.awaitSent(1));
+        assertEquals(1, healthy.completedWithError.getCount());
+    }
+
+    private void createPublisher(int maxSendThreads) {
+        filmStorage = new InMemoryFilmStorage();
+        film = filmStorage.create(new Film("f", "d", LocalDate.of(2000, 1, 1), 90, new MpaRating(1)
+                , new ArrayList<>()));
+        publisher = new PopularFilmsPublisher(filmStorage, 10, 60_000, 2, 100, maxSendThreads) {
+            @Override
+            SseEmitter createEmitter() {
+                return next[0];
+            }
+        };
+    }
+
+    private TestEmitter subscribe(boolean stalled) {
+        next[0] = new TestEmitter(stalled);
+        publisher.subscribe();
+        return next[0];
+    }
+
+    /**
+     * SseEmitter без соединения: считает отправленные события, зависший - не выходит из отправки
+     * до освобождения в тесте и не реагирует на прерывание, как блокирующая запись в сокет
+     */
+    private class TestEmitter extends SseEmitter {
+        private final boolean stalled;
+        private final AtomicInteger sent = new AtomicInteger();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch completedWithError = new CountDownLatch(1);
+
+        TestEmitter(boolean stalled) {
+            this.stalled = stalled;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            entered.countDown();
+            if (stalled) {
+                boolean released = false;
+                while (!released) {
+                    try {
+                        released = releaseStalled.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        //прерывание игнорируется
+                    }
+                }
+            }
+            synchronized (sent) {
+                sent.incrementAndGet();
+                sent.notifyAll();
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            completedWithError.countDown();
+        }
+
+        boolean awaitSent(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            synchronized (sent) {
+                while (sent.get() < count && System.currentTimeMillis() < deadline) {
+                    sent.wait(100);
+                }
+            }
+            return sent.get() >= count;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    /**
+     * одновременные запросы по одному ключу выполняют одну загрузку и получают один результат
+     */
+    @Test
+    void concurrentCallsShareOneLoad() throws Exception {
+        SingleFlight<Integer, List<Integer>> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+
+        int callers = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<List<Integer>>> futures = new ArrayList<>();
+
+        futures.add(executor.submit(() -> singleFlight.execute(1, () -> {
+            loads.incrementAndGet();
+            loadStarted.countDown();
+            await(releaseLoad);
+            return List.of(1, 2, 3);
+        })));
+        loadStarted.await();
+
+        for (int i = 1; i < callers; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute(1, () -> {
+                loads.incrementAndGet();
+                return List.of();
+            })));
+        }
+        Thread.sleep(200);
+        releaseLoad.countDown();
+
+        List<Integer> first = futures.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<List<Integer>> future : futures) {
+            List<Integer> result = future.get(10, TimeUnit.SECONDS);
+            assertTrue(result == first || result.isEmpty());
+        }
+        executor.shutdown();
+
+        //потоки, пришедшие после завершения первой загрузки, выполняют свою
+        assertTrue(loads.get() < callers / 2, "загрузок: " + loads.get());
+    }
+
+    /**
+     * исключение загрузки получают все ожидающие, следующий вызов выполняет новую загрузку
+     */
+    @Test
+    void exceptionIsSharedAndNotCached() throws Exception {
+        SingleFlight<Integer, Integer> singleFlight = new SingleFlight<>();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<Integer> leader = executor.submit(() -> singleFlight.execute(1, () -> {
+            loadStarted.countDown();
+            await(releaseLoad);
+            throw new IllegalStateException("ошибка загрузки");
+        }));
+        loadStarted.await();
+        Future<Integer> follower = executor.submit(() -> singleFlight.execute(1, () -> 2));
+        Thread.sleep(100);
+        releaseLoad.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        try {
+            assertEquals(2, follower.get(10, TimeUnit.SECONDS));
+        } catch (ExecutionException followerException) {
+            assertTrue(followerException.getCause() instanceof IllegalStateException);
+        }
+        executor.shutdown();
+
+        assertEquals(3, singleFlight.execute(1, () -> 3));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
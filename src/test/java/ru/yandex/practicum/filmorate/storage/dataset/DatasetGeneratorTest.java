@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.dataset;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.models.DatasetResult;
+import ru.yandex.practicum.filmorate.models.DatasetSpec;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendGraph;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class DatasetGeneratorTest {
+    private static final DatasetSpec SPEC = new DatasetSpec(500, 200, 5, 10, 1.0, 7);
+
+    private final DatasetGenerator generator;
+    private final JdbcTemplate jdbcTemplate;
+    private final CachingUserStorage userStorage;
+    private final CachingFilmStorage filmStorage;
+
+    @AfterEach
+    void resetStorage() {
+        userStorage.clearAll();
+        filmStorage.clearAll();
+    }
+
+    /**
+     * записанные данные совпадают с результатом генерации, повторная генерация с тем же seed дает те же данные,
+     * новые записи получают id после сгенерированных
+     */
+    @Test
+    void generatesReproducibleDataset() {
+        DatasetResult result = generator.generate(SPEC);
+        assertEquals(500, count("users"));
+        assertEquals(200, count("films"));
+        assertEquals(result.getFilmGenres(), count("film_genres"));
+        assertEquals(result.getFriendships(), count("user_friends"));
+        assertEquals(result.getLikes(), count("film_likes"));
+        // пользователь i добавляет min(5, i - 1) друзей
+        assertEquals(499 * 5 - (4 + 3 + 2 + 1), result.getFriendships());
+        List<Film> popular = filmStorage.getPopularFilms(3);
+
+        DatasetResult again = generator.generate(SPEC);
+        assertEquals(result.getLikes(), again.getLikes());
+        assertEquals(popular, filmStorage.getPopularFilms(3));
+
+        FriendGraph graph = userStorage.getFriendGraph();
+        FriendGraph expected = DatasetGenerator.generateFriendGraph(500, 5, 7);
+        assertEquals(expected.getEdgeCount(), graph.getEdgeCount());
+        for (int userId = 1; userId <= 500; userId++) {
+            assertEquals(expected.getInDegree(userId), graph.getInDegree(userId));
+        }
+
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_rating_id) "
+                + "VALUES ('new', 'new', '2000-01-01', 90, 1)");
+        assertEquals(201, jdbcTemplate.queryForObject("SELECT MAX(film_id) FROM films", Integer.class));
+    }
+
+    /**
+     * количество подписчиков и лайков распределено неравномерно: у лидеров намного больше среднего
+     */
+    @Test
+    void distributionsAreSkewed() {
+        DatasetResult result = generator.generate(SPEC);
+
+        int maxFollowers = jdbcTemplate.queryForObject("SELECT MAX(cnt) FROM "
+                + "(SELECT COUNT(*) AS cnt FROM user_friends GROUP BY friend_id)", Integer.class);
+        assertTrue(maxFollowers > 5 * result.getFriendships() / 500);
+
+        int maxLikes = jdbcTemplate.queryForObject("SELECT MAX(cnt) FROM "
+                + "(SELECT COUNT(*) AS cnt FROM film_likes GROUP BY film_id)", Integer.class);
+        assertTrue(maxLikes > 5 * result.getLikes() / 200);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.Genre;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.RequestIdentityMap;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryCounter;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class CachingFilmStorageTest {
+
+    private final CachingFilmStorage cachingFilmStorage;
+    private final CachingUserStorage cachingUserStorage;
+    private final FilmDbStorage filmDbStorage;
+    private final EntityCaches entityCaches;
+    private final RequestIdentityMap identityMap;
+
+    /**
+     * для каждого теста - пустые таблицы и кэши
+     */
+    @BeforeEach
+    public void clearStorage() {
+        cachingFilmStorage.clearAll();
+        cachingUserStorage.clearAll();
+    }
+
+    /**
+     * повторное чтение берется из кэша, изменяющий метод удаляет запись из кэша
+     */
+    @Test
+    void getByIdIsCachedAndInvalidatedOnUpdate() {
+        Film film = cachingFilmStorage.create(new Film("Name", "Description", LocalDate.of(2000, 1, 1), 90
+                , new MpaRating(1), List.of(new Genre(1))));
+
+        long hitsBefore = entityCaches.films().stats().hitCount();
+        assertEquals(film, cachingFilmStorage.getById(film.getId()));
+        assertEquals(film, cachingFilmStorage.getById(film.getId()));
+        assertEquals(hitsBefore + 1, entityCaches.films().stats().hitCount());
+
+        film.setName("New name");
+        cachingFilmStorage.update(film);
+        assertEquals("New name", cachingFilmStorage.getById(film.getId()).getName());
+    }
+
+    /**
+     * загрузка списка возвращает фильмы в порядке списка тремя запросами (фильмы, жанры, лайки)
+     * независимо от длины списка, отсутствующие id пропускаются
+     */
+    @Test
+    void getByIdListKeepsOrderWithConstantQueryCount() {
+        List<Integer> idList = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Film film = cachingFilmStorage.create(new Film("Name " + i, "Description", LocalDate.of(2000, 1, 1), 90
+                    , new MpaRating(1), List.of(new Genre(1), new Genre(2))));
+            idList.add(0, film.getId());
+        }
+        idList.add(25, 9999);
+        entityCaches.invalidateAll();
+
+        QueryCounter.resetThreadCount();
+        List<Film> films = cachingFilmStorage.getByIdList(idList);
+        assertEquals(3, QueryCounter.getThreadCount());
+
+        assertEquals(50, films.size());
+        assertEquals(idList.get(0), films.get(0).getId());
+        assertEquals(idList.get(50), films.get(49).getId());
+        assertEquals(2, films.get(0).getGenres().size());
+    }
+
+    /**
+     * в рамках запроса повторная загрузка возвращает тот же экземпляр, после изменения - новый;
+     * обновление фильма выполняет UPDATE, чтение, удаление и запись жанров и одну загрузку результата
+     */
+    @Test
+    void identityMapReturnsSameInstanceWithinRequest() {
+        Film film = cachingFilmStorage.create(new Film("Name", "Description", LocalDate.of(2000, 1, 1), 90
+                , new MpaRating(1), new ArrayList<>()));
+
+        identityMap.begin();
+        try {
+            Film loaded = cachingFilmStorage.getById(film.getId());
+            assertSame(loaded, cachingFilmStorage.getById(film.getId()));
+
+            loaded.getGenres().add(new Genre(2));
+            QueryCounter.resetThreadCount();
+            Film updated = cachingFilmStorage.update(loaded);
+            assertEquals(7, QueryCounter.getThreadCount());
+
+            Film reloaded = cachingFilmStorage.getById(film.getId());
+            assertNotSame(loaded, reloaded);
+            assertEquals(updated, reloaded);
+            assertEquals(List.of(new Genre(2, "Драма")), reloaded.getGenres());
+        } finally {
+            identityMap.end();
+        }
+    }
+
+    /**
+     * изменения объекта, полученного из кэша, не попадают в кэш
+     */
+    @Test
+    void cachedObjectIsNotSharedWithCaller() {
+        Film film = cachingFilmStorage.create(new Film("Name", "Description", LocalDate.of(2000, 1, 1), 90
+                , new MpaRating(1), new ArrayList<>()));
+
+        Film cachedFilm = cachingFilmStorage.getById(film.getId());
+        cachedFilm.setName("Changed");
+        cachedFilm.getLikedUserIdSet().add(100);
+
+        Film film2 = cachingFilmStorage.getById(film.getId());
+        assertEquals("Name", film2.getName());
+        assertTrue(film2.getLikedUserIdSet().isEmpty());
+    }
+
+    /**
+     * лайк удаляет фильм из кэша, очистка пользователей (с каскадным удалением лайков) очищает кэш фильмов
+     */
+    @Test
+    void likesInvalidateCache() {
+        Film film = cachingFilmStorage.create(new Film("Name", "Description", LocalDate.of(2000, 1, 1), 90
+                , new MpaRating(1), new ArrayList<>()));
+        User user = cachingUserStorage.create(new User("aa@mm.ru", "login", "Name", LocalDate.of(2000, 1, 1)));
+
+        assertTrue(cachingFilmStorage.getById(film.getId()).getLikedUserIdSet().isEmpty());
+        cachingFilmStorage.addLike(film, user.getId());
+        assertEquals(1, cachingFilmStorage.getById(film.getId()).getLikedUserIdSet().size());
+
+        cachingUserStorage.clearAll();
+        assertTrue(cachingFilmStorage.getById(film.getId()).getLikedUserIdSet().isEmpty());
+    }
+
+    /**
+     * после параллельных чтений и обновлений одного фильма в кэше должно остаться последнее записанное состояние
+     */
+    @Test
+    void cacheIsConsistentUnderConcurrentUpdates() throws Exception {
+        Film film = cachingFilmStorage.create(new Film("Name", "Description", LocalDate.of(2000, 1, 1), 90
+                , new MpaRating(1), new ArrayList<>()));
+        int filmId = film.getId();
+
+        int threads = 8;
+        int iterations = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            boolean writer = t % 2 == 0;
+            int threadNumber = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    if (writer) {
+                        Film update = cachingFilmStorage.getById(filmId);
+                        update.setName("Name-" + threadNumber + "-" + i);
+                        update.setDuration(i + 1);
+                        cachingFilmStorage.update(update);
+                    } else {
+                        assertNotNull(cachingFilmStorage.getById(filmId));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(filmDbStorage.getById(filmId), cachingFilmStorage.getById(filmId));
+    }
+}
@@ -7,13 +7,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.FilmField;
 import ru.yandex.practicum.filmorate.models.Genre;
 import ru.yandex.practicum.filmorate.models.MpaRating;
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryRecorder;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +30,7 @@ class FilmDbStorageTest {
     private final FilmDbStorage filmStorage;
     private final UserDbStorage userStorage;
     private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolTaskExecutor childLoadExecutor;
     private static boolean dbIsInitialized = false;
 
     /**
@@ -92,6 +97,23 @@ class FilmDbStorageTest {
         assertEquals(new Genre(1, "Комедия"), film.getGenres().get(0));
     }
 
+    /**
+     * тест получения записи по id с ограниченным набором полей
+     */
+    @Test
+    void getByIdWithFields() {
+        Film film = filmStorage.getById(1, EnumSet.of(FilmField.ID, FilmField.NAME, FilmField.MPA));
+        assertNotNull(film);
+        assertEquals(1, film.getId());
+        assertEquals("Name-1", film.getName());
+        assertEquals(new MpaRating(1, "G"), film.getMpa());
+        assertNull(film.getDescription());
+        assertNull(film.getReleaseDate());
+        assertNull(film.getDuration());
+        assertNull(film.getGenres());
+        assertTrue(film.getLikedUserIdSet().isEmpty());
+    }
+
     /**
      * тест получения записи по несуществующему id
      */
@@ -117,6 +139,51 @@ class FilmDbStorageTest {
         assertEquals("Name-2", films.get(1).getName());
     }
 
+    /**
+     * загрузка одним запросом и отдельными запросами к жанрам и лайкам должна давать одинаковый результат
+     */
+    @Test
+    void singleQueryAndMultiQueryHydrationAreEqual() {
+        FilmDbStorage multiQueryStorage = new FilmDbStorage(jdbcTemplate, false);
+        FilmDbStorage singleQueryStorage = new FilmDbStorage(jdbcTemplate, true);
+
+        assertEquals(multiQueryStorage.getAll(), singleQueryStorage.getAll());
+        assertEquals(multiQueryStorage.getPopularFilms(10), singleQueryStorage.getPopularFilms(10));
+        assertEquals(multiQueryStorage.getById(1), singleQueryStorage.getById(1));
+        assertEquals(1, singleQueryStorage.getById(1).getLikedUserIdSet().size());
+        assertEquals(1, singleQueryStorage.getById(1).getGenres().size());
+    }
+
+    /**
+     * параллельная загрузка жанров и лайков должна давать тот же результат, что и последовательная,
+     * запросы потока пула учитываются в счетчике вызвавшего потока
+     */
+    @Test
+    void parallelChildLoadsAreEqualToSequential() {
+        FilmDbStorage sequentialStorage = new FilmDbStorage(jdbcTemplate, false);
+        FilmDbStorage parallelStorage = new FilmDbStorage(jdbcTemplate, false, true, childLoadExecutor);
+
+        assertEquals(sequentialStorage.getAll(), parallelStorage.getAll());
+        assertEquals(sequentialStorage.getPopularFilms(10), parallelStorage.getPopularFilms(10));
+
+        try (QueryRecorder queries = QueryRecorder.start()) {
+            parallelStorage.getAll();
+            queries.assertCount(3);
+        }
+    }
+
+    /**
+     * при учете оценок влияния лайк пользователя без рассчитанной оценки имеет вес 1
+     */
+    @Test
+    void popularFilmsWeightedByInfluence() {
+        FilmDbStorage weightedStorage = new FilmDbStorage(jdbcTemplate, true, false, null, true);
+
+        List<Film> films = weightedStorage.getPopularFilms(10);
+        assertEquals(filmStorage.getPopularFilms(10).size(), films.size());
+        assertEquals(1, films.get(0).getId());
+    }
+
     /**
      * тест создания записи
      */
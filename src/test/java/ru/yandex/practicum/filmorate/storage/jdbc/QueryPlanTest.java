@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.FilmField;
+import ru.yandex.practicum.filmorate.models.Genre;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
+import ru.yandex.practicum.filmorate.storage.dictionary.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.dictionary.MpaRatingDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Планы H2 (EXPLAIN) всех SQL-запросов FilmDbStorage, UserDbStorage, GenresDbStorage и MpaRatingDbStorage:
+ * запросы записываются QueryRecorder при вызове методов хранилищ, тест падает, если запрос читает таблицу целиком.
+ * Полный просмотр разрешен только методам, которые по смыслу читают всю таблицу (списки всех объектов,
+ * граф дружбы, рейтинг популярных фильмов), и только для указанных таблиц
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryPlanTest {
+    // индекс без условия после имени (/* PUBLIC.PRIMARY_KEY_4 */) или tableScan - полный просмотр таблицы
+    private static final Pattern SCAN = Pattern.compile("/\\* PUBLIC\\.([A-Z0-9_]+?)(\\.tableScan)? \\*/(?!\\s*/\\* direct lookup)");
+
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final GenresDbStorage genresStorage;
+    private final MpaRatingDbStorage mpaRatingStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<String> violations = new ArrayList<>();
+    private final Map<String, String> indexTables = new HashMap<>();
+    private int checkedStatements;
+
+    @AfterEach
+    void resetStorage() {
+        filmStorage.clearAll();
+        userStorage.clearAll();
+    }
+
+    @Test
+    void hotQueriesUseIndexes() {
+        jdbcTemplate.query("SELECT index_name, table_name FROM information_schema.indexes WHERE table_schema = 'PUBLIC'"
+                , rs -> {
+                    indexTables.put(rs.getString("index_name"), rs.getString("table_name"));
+                });
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userStorage.create(new User("u" + i + "@mm.ru", "u" + i, "u", LocalDate.of(2000, 1, 1))));
+        }
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            films.add(filmStorage.create(new Film("f" + i, "d", LocalDate.of(2000, 1, 1), 90, new MpaRating(1)
+                    , new ArrayList<>(List.of(new Genre(1), new Genre(2))))));
+        }
+        User user = users.get(0);
+        User friend = users.get(1);
+        Film film = films.get(0);
+        int userId = user.getId();
+        int filmId = film.getId();
+        FilmDbStorage multiQueryStorage = new FilmDbStorage(jdbcTemplate, false);
+        FilmDbStorage weightedStorage = new FilmDbStorage(jdbcTemplate, true, false, null, true);
+
+        check("UserDbStorage.create", () -> userStorage.create(new User("x@mm.ru", "x", "x", LocalDate.of(2000, 1, 1))));
+        check("UserDbStorage.update", () -> userStorage.update(user));
+        check("UserDbStorage.addFriend", () -> userStorage.addFriend(user, friend.getId()));
+        check("UserDbStorage.addFriend", () -> userStorage.addFriend(friend, users.get(2).getId()));
+        check("UserDbStorage.getById", () -> userStorage.getById(userId));
+        check("UserDbStorage.getById(fields)", () -> userStorage.getById(userId, EnumSet.of(UserField.LOGIN)));
+        check("UserDbStorage.getByIdList", () -> userStorage.getByIdList(List.of(userId, friend.getId())));
+        check("UserDbStorage.getFriends", () -> userStorage.getFriends(userId));
+        check("UserDbStorage.getCommonFriends", () -> userStorage.getCommonFriends(userId, friend.getId()));
+        check("UserDbStorage.getFollowerIds", () -> userStorage.getFollowerIds(friend.getId()));
+        check("UserDbStorage.getInfluenceScore", () -> userStorage.getInfluenceScore(userId));
+        check("UserDbStorage.removeFriend", () -> userStorage.removeFriend(user, friend.getId()));
+
+        check("FilmDbStorage.create", () -> filmStorage.create(new Film("x", "d", LocalDate.of(2000, 1, 1), 90
+                , new MpaRating(1), new ArrayList<>(List.of(new Genre(3))))));
+        check("FilmDbStorage.update", () -> filmStorage.update(film));
+        check("FilmDbStorage.addLike", () -> filmStorage.addLike(film, userId));
+        check("FilmDbStorage.getById", () -> filmStorage.getById(filmId));
+        check("FilmDbStorage.getById(fields)", () -> filmStorage.getById(filmId, EnumSet.of(FilmField.NAME)));
+        check("FilmDbStorage.getByIdList", () -> filmStorage.getByIdList(List.of(filmId, films.get(1).getId())));
+        check("FilmDbStorage.getLikedFilmIds", () -> filmStorage.getLikedFilmIds(userId));
+        check("FilmDbStorage.getLikedFilmIds(list)", () -> filmStorage.getLikedFilmIds(List.of(userId, friend.getId())));
+        check("FilmDbStorage(multi-query).getById", () -> multiQueryStorage.getById(filmId));
+        check("FilmDbStorage(multi-query).getByIdList", () -> multiQueryStorage.getByIdList(List.of(filmId)));
+        check("FilmDbStorage.removeLike", () -> filmStorage.removeLike(film, userId));
+
+        check("GenresDbStorage.getById", () -> genresStorage.getById(1));
+        check("MpaRatingDbStorage.getById", () -> mpaRatingStorage.getById(1));
+
+        //полные списки: целиком читается только основная таблица списка
+        check("UserDbStorage.getAll", () -> userStorage.getAll(), "USERS");
+        check("UserDbStorage.getAll(fields)", () -> userStorage.getAll(EnumSet.of(UserField.LOGIN)), "USERS");
+        check("UserDbStorage.getFriendGraph", () -> userStorage.getFriendGraph(), "USERS", "USER_FRIENDS");
+        check("UserDbStorage.saveInfluenceScores", () -> userStorage.saveInfluenceScores(new double[]{0, 0.5, 0.5})
+                , "USER_INFLUENCE");
+        check("FilmDbStorage.getAll", () -> filmStorage.getAll(), "FILMS");
+        check("FilmDbStorage.getAll(fields)", () -> filmStorage.getAll(EnumSet.of(FilmField.NAME)), "FILMS");
+        check("FilmDbStorage(multi-query).getAll", () -> multiQueryStorage.getAll(), "FILMS");
+        check("FilmDbStorage.getPopularFilms", () -> filmStorage.getPopularFilms(10), "FILMS");
+        check("FilmDbStorage(weighted).getPopularFilms", () -> weightedStorage.getPopularFilms(10), "FILMS");
+        check("GenresDbStorage.getAll", () -> genresStorage.getAll(), "GENRES");
+        check("MpaRatingDbStorage.getAll", () -> mpaRatingStorage.getAll(), "MPA_RATINGS");
+
+        assertTrue(checkedStatements > 30, "Записано слишком мало запросов: " + checkedStatements);
+        assertTrue(violations.isEmpty(), "Запросы с полным просмотром таблиц:" + System.lineSeparator()
+                + String.join(System.lineSeparator(), violations));
+    }
+
+    /**
+     * выполнить вызов хранилища, записать его запросы и проверить их планы
+     *
+     * @param name              название вызова для сообщения об ошибке
+     * @param call              вызов хранилища
+     * @param fullScanAllowedIn таблицы, которые вызов может читать целиком
+     */
+    private void check(String name, Runnable call, String... fullScanAllowedIn) {
+        List<String> statements;
+        try (QueryRecorder queries = QueryRecorder.start()) {
+            call.run();
+            statements = queries.getStatements();
+        }
+        assertFalse(statements.isEmpty(), name + " не выполнил ни одного запроса");
+
+        Set<String> allowed = Set.of(fullScanAllowedIn);
+        for (String sql : statements) {
+            checkedStatements++;
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+            Matcher matcher = SCAN.matcher(plan);
+            while (matcher.find()) {
+                String table = matcher.group(2) != null
+                        ? matcher.group(1)
+                        : indexTables.getOrDefault(matcher.group(1), matcher.group(1));
+                if (!allowed.contains(table.toUpperCase(Locale.ROOT))) {
+                    violations.add(name + ": " + table + System.lineSeparator() + "    " + sql
+                            + System.lineSeparator() + "    " + plan.replaceAll("\\s+", " "));
+                }
+            }
+        }
+    }
+}
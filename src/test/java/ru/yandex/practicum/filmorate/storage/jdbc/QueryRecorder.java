@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Запись SQL-запросов блока теста для проверки бюджета запросов (защита от N+1).
+ * Учитываются запросы текущего потока, в том числе выполненные через MockMvc, и задачи,
+ * поставленные им в пулы с QueryCountingTaskDecorator; фоновые потоки приложения не учитываются:
+ * <pre>
+ * try (QueryRecorder queries = QueryRecorder.start()) {
+ *     mvc.perform(get("/films/popular"));
+ *     queries.assertAtMost(2);
+ * }
+ * </pre>
+ */
+public class QueryRecorder implements StatementListener, AutoCloseable {
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+    private QueryRecorder() {
+    }
+
+    /**
+     * начать запись запросов текущего потока
+     */
+    public static QueryRecorder start() {
+        QueryRecorder recorder = new QueryRecorder();
+        QueryCounter.setThreadListener(recorder);
+        return recorder;
+    }
+
+    @Override
+    public void statementExecuted(String sql) {
+        statements.add(sql);
+    }
+
+    /**
+     * выполненные запросы в порядке выполнения
+     */
+    public List<String> getStatements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+
+    public int getCount() {
+        return statements.size();
+    }
+
+    /**
+     * забыть записанные запросы, например после подготовки данных
+     */
+    public void clear() {
+        statements.clear();
+    }
+
+    /**
+     * выполнено не больше budget запросов; в сообщении об ошибке перечисляются выполненные запросы
+     */
+    public void assertAtMost(int budget) {
+        List<String> executed = getStatements();
+        assertTrue(executed.size() <= budget, () -> describe(executed, "не больше " + budget));
+    }
+
+    /**
+     * выполнено ровно expected запросов
+     */
+    public void assertCount(int expected) {
+        List<String> executed = getStatements();
+        assertEquals(expected, executed.size(), () -> describe(executed, String.valueOf(expected)));
+    }
+
+    @Override
+    public void close() {
+        QueryCounter.setThreadListener(null);
+    }
+
+    private static String describe(List<String> executed, String expected) {
+        StringBuilder message = new StringBuilder("Ожидалось запросов: " + expected + ", выполнено: " + executed.size());
+        for (int i = 0; i < executed.size(); i++) {
+            message.append(System.lineSeparator()).append(i + 1).append(". ").append(executed.get(i));
+        }
+        return message.toString();
+    }
+}
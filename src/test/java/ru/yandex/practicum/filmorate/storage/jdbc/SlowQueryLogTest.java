@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.models.Film;
+import ru.yandex.practicum.filmorate.models.MpaRating;
+import ru.yandex.practicum.filmorate.models.SlowQuery;
+import ru.yandex.practicum.filmorate.models.SlowQueryStatistics;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryLogTest {
+
+    /**
+     * с нулевым порогом сохраняется каждый запрос: текст, параметры, количество строк и метод хранилища
+     */
+    @Test
+    void recordsQueriesWithParametersRowsAndCaller() {
+        SlowQueryLog log = new SlowQueryLog(0, 100);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(createDataSource(log));
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, true);
+        Film film = filmStorage.create(new Film("f", "d", LocalDate.of(2000, 1, 1), 90, new MpaRating(1)
+                , new ArrayList<>()));
+        log.clear();
+
+        filmStorage.getById(film.getId());
+        jdbcTemplate.update("UPDATE films SET duration = ? WHERE film_id = ?", 100, film.getId());
+
+        List<SlowQuery> queries = log.getRecent(10);
+        assertEquals(2, queries.size());
+
+        SlowQuery update = queries.get(0);
+        assertTrue(update.getSql().startsWith("UPDATE films"));
+        assertEquals(List.of("100", String.valueOf(film.getId())), update.getParameters());
+        assertEquals(1, update.getRows());
+        assertNull(update.getCaller());
+
+        SlowQuery select = queries.get(1);
+        assertEquals(List.of(String.valueOf(film.getId())), select.getParameters());
+        assertEquals(1, select.getRows());
+        assertEquals("FilmDbStorage.getById", select.getCaller());
+        assertTrue(select.getDurationMillis() >= 0);
+    }
+
+    /**
+     * запросы быстрее порога не сохраняются, при переполнении буфера остаются последние запросы
+     */
+    @Test
+    void keepsOnlySlowAndRecentQueries() {
+        SlowQueryLog disabled = new SlowQueryLog(10_000, 10);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(createDataSource(disabled));
+        jdbcTemplate.queryForList("SELECT * FROM genres");
+        assertTrue(disabled.getRecent(10).isEmpty());
+
+        SlowQueryLog log = new SlowQueryLog(0, 3);
+        jdbcTemplate = new JdbcTemplate(createDataSource(log));
+        for (int i = 1; i <= 5; i++) {
+            jdbcTemplate.queryForList("SELECT * FROM genres WHERE genre_id = ?", i);
+        }
+        List<SlowQuery> queries = log.getRecent(10);
+        assertEquals(3, queries.size());
+        assertEquals(List.of("5"), queries.get(0).getParameters());
+        assertEquals(List.of("3"), queries.get(2).getParameters());
+        assertEquals(1, log.getRecent(1).size());
+    }
+
+    /**
+     * статистика объединяет запросы, отличающиеся только списками IN и числовыми константами
+     */
+    @Test
+    void aggregatesByNormalizedStatement() {
+        SlowQueryLog log = new SlowQueryLog(0, 100);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(createDataSource(log));
+        jdbcTemplate.queryForList("SELECT * FROM genres WHERE genre_id IN (1, 2)");
+        jdbcTemplate.queryForList("SELECT * FROM genres WHERE genre_id IN (3,4,5)");
+        jdbcTemplate.queryForList("SELECT * FROM mpa_ratings");
+
+        List<SlowQueryStatistics> top = log.getTop(10);
+        assertEquals(2, top.size());
+        SlowQueryStatistics genres = top.stream()
+                .filter(s -> s.getSql().equals("SELECT * FROM genres WHERE genre_id IN (...)"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, genres.getCount());
+        assertEquals(5, genres.getRows());
+        assertEquals(1, log.getTop(1).size());
+    }
+
+    private static DataSource createDataSource(SlowQueryLog log) {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:slow-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(h2);
+        return new StatementCountingDataSource(h2, log);
+    }
+}
@@ -8,8 +8,10 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.models.User;
+import ru.yandex.practicum.filmorate.models.UserField;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -56,6 +58,26 @@ class UserDbStorageTest {
         }
     }
 
+    /**
+     * оценки влияния заменяются целиком, id без пользователя пропускаются
+     */
+    @Test
+    void saveAndGetInfluenceScores() {
+        double[] scores = new double[100];
+        scores[1] = 2.0;
+        scores[2] = 0.5;
+        scores[99] = 5.0;
+        userStorage.saveInfluenceScores(scores);
+
+        assertEquals(2.0, userStorage.getInfluenceScore(1));
+        assertEquals(0.5, userStorage.getInfluenceScore(2));
+        assertNull(userStorage.getInfluenceScore(99));
+
+        userStorage.saveInfluenceScores(new double[]{0, 1.5});
+        assertEquals(1.5, userStorage.getInfluenceScore(1));
+        assertNull(userStorage.getInfluenceScore(2));
+    }
+
     /**
      * тест на запрос существующей записи
      */
@@ -69,6 +91,20 @@ class UserDbStorageTest {
         assertEquals(LocalDate.of(2012, 12, 12), user.getBirthday());
     }
 
+    /**
+     * тест на запрос существующей записи с ограниченным набором полей
+     */
+    @Test
+    void getByIdWithFields() {
+        User user = userStorage.getById(1, EnumSet.of(UserField.ID, UserField.LOGIN));
+        assertNotNull(user);
+        assertEquals(1, user.getId());
+        assertEquals("testlogin", user.getLogin());
+        assertNull(user.getEmail());
+        assertNull(user.getName());
+        assertNull(user.getBirthday());
+    }
+
     /**
      * Тест на запрос несуществующей записи, должно вернуть null
      */
@@ -177,4 +213,37 @@ class UserDbStorageTest {
         assertEquals(0, user.getFriendIdSet().size());
         assertFalse(user.getFriendIdSet().contains(2));
     }
+
+    /**
+     * тест на получение друзей и общих друзей одним запросом
+     */
+    @Test
+    void getFriendsAndCommonFriends() {
+        User user1 = userStorage.getById(1);
+        User user2 = userStorage.getById(2);
+        assertNotNull(user1);
+        assertNotNull(user2);
+
+        userStorage.addFriend(user1, 3);
+        userStorage.addFriend(user2, 3);
+        userStorage.addFriend(user2, 1);
+
+        List<User> friends = userStorage.getFriends(2);
+        assertEquals(2, friends.size());
+        assertEquals(1, friends.get(0).getId());
+        assertEquals("aa@mm.ru", friends.get(0).getEmail());
+        assertTrue(friends.get(0).getFriendIdSet().contains(3));
+        assertEquals(3, friends.get(1).getId());
+
+        List<User> commonFriends = userStorage.getCommonFriends(1, 2);
+        assertEquals(1, commonFriends.size());
+        assertEquals(3, commonFriends.get(0).getId());
+
+        assertTrue(userStorage.getCommonFriends(1, 100).isEmpty());
+        assertTrue(userStorage.getFriends(100).isEmpty());
+
+        userStorage.removeFriend(user1, 3);
+        userStorage.removeFriend(user2, 3);
+        userStorage.removeFriend(user2, 1);
+    }
 }
\ No newline at end of file